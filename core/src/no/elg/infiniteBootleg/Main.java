@@ -72,7 +72,18 @@ public class Main extends ApplicationAdapter {
 
     public static long tps = Ticker.DEFAULT_TICKS_PER_SECOND;
 
-    public static final int SCALE = Toolkit.getDefaultToolkit().getScreenSize().width > 2560 ? 2 : 1;
+    /**
+     * Seconds between each autosave of the world, zero or less disables autosaving
+     */
+    public static int autosaveInterval = 60;
+
+    /**
+     * If chunks should be ticked in parallel, see {@link no.elg.infiniteBootleg.world.ChunkTicker}
+     */
+    public static boolean parallelChunkTicking = false;
+
+    public static final int SCALE =
+        !GraphicsEnvironment.isHeadless() && Toolkit.getDefaultToolkit().getScreenSize().width > 2560 ? 2 : 1;
 
     private World world;
     private ConsoleHandler console;
@@ -186,6 +186,36 @@ public class ProgramArgs implements ConsoleLogger, Disposable {
         }
     }
 
+    @Argument(value = "Specify the number of seconds between each autosave. Must be an integer, 0 disables autosaving",
+              alt = 'a')
+    public boolean autosave(String val) {
+        if (val == null) {
+            log(LogLevel.ERROR, "Specify the number of seconds between each autosave. Must be an integer");
+            return false;
+        }
+        try {
+            int interval = Integer.parseInt(val);
+            if (interval < 0) {
+                log(LogLevel.ERROR, "Argument must be an integer greater than or equal to 0, got " + val);
+                return false;
+            }
+            Main.autosaveInterval = interval;
+            return true;
+        } catch (NumberFormatException e) {
+            log(LogLevel.ERROR, "Argument must be an integer greater than or equal to 0, got " + val);
+            return false;
+        }
+    }
+
+    /**
+     * Tick chunks in parallel
+     */
+    @Argument(value = "Tick chunks in parallel on all available processors", alt = 'p')
+    private void parallel_ticking(String val) {
+        Main.parallelChunkTicking = true;
+        log("Chunks will be ticked in parallel");
+    }
+
     @Argument(value = "Print out available arguments and exit", alt = '?')
     public void help(String val) {
         System.out.println("List of program arguments:");
@@ -8,10 +8,12 @@ import com.strongjoshua.console.annotation.HiddenCommand;
 import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.input.EntityControls;
 import no.elg.infiniteBootleg.screen.HUDRenderer;
+import no.elg.infiniteBootleg.util.TickHistogram;
 import no.elg.infiniteBootleg.util.Ticker;
 import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.render.LightUpdater;
 import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
 import no.elg.infiniteBootleg.world.subgrid.enitites.GenericEntity;
@@ -121,6 +123,40 @@ public class Commands extends CommandExecutor {
         }
     }
 
+    @ConsoleDoc(description = "Show how long each phase of the latest ticks and frames took")
+    public void profile() {
+        World world = Main.inst().getWorld();
+        logger.log(world.getTickProfiler().report());
+        TickHistogram lockWaits = world.getWorldBody().getLockWaits();
+        logger.logf("Box2D lock wait mean: %.3f ms p50: %.3f ms p99: %.3f ms max: %.3f ms",
+                    lockWaits.getMean() / 1_000_000f, lockWaits.getP50() / 1_000_000f,
+                    lockWaits.getP99() / 1_000_000f, lockWaits.getMax() / 1_000_000f);
+        if (Main.renderGraphic) {
+            logger.log(world.getRender().getRenderProfiler().report());
+            LightUpdater lightUpdater = world.getRender().getLightUpdater();
+            if (lightUpdater != null) {
+                TickHistogram durations = lightUpdater.getUpdateDurations();
+                logger.logf("Light updates: %d mean: %.3f ms p50: %.3f ms p99: %.3f ms max: %.3f ms",
+                            lightUpdater.getUpdates(), durations.getMean() / 1_000_000f,
+                            durations.getP50() / 1_000_000f, durations.getP99() / 1_000_000f,
+                            durations.getMax() / 1_000_000f);
+            }
+        }
+    }
+
+    @ConsoleDoc(description = "Forget the measurements shown by the profile command")
+    public void resetProfile() {
+        World world = Main.inst().getWorld();
+        world.getTickProfiler().reset();
+        world.getWorldBody().getLockWaits().reset();
+        world.getRender().getRenderProfiler().reset();
+        LightUpdater lightUpdater = world.getRender().getLightUpdater();
+        if (lightUpdater != null) {
+            lightUpdater.getUpdateDurations().reset();
+        }
+        logger.log(LogLevel.SUCCESS, "Profiler has been reset");
+    }
+
     @ClientsideOnly
     @ConsoleDoc(description = "Toggles debug rendering of Box2D objects")
     public void debug() {
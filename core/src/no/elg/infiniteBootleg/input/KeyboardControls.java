@@ -2,11 +2,12 @@ package no.elg.infiniteBootleg.input;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
-import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.LongArray;
 import no.elg.infiniteBootleg.Main;
-import no.elg.infiniteBootleg.world.Block;
+import no.elg.infiniteBootleg.util.CoordUtil;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.WorldCursor;
 import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
 import no.elg.infiniteBootleg.world.subgrid.LivingEntity;
@@ -14,7 +15,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import static com.badlogic.gdx.Input.Keys.*;
-import static no.elg.infiniteBootleg.world.render.WorldRender.BOX2D_LOCK;
 
 /**
  * Control scheme where the user moves the player around with a keyboard
@@ -57,8 +57,14 @@ public class KeyboardControls extends AbstractEntityControls {
                 world.remove(blockX, blockY, true);
             }
             else {
-                for (Block block : world.getBlocksWithin(rawX, rawY, breakBrushSize, true)) {
-                    world.remove(block.getWorldX(), block.getWorldY(), true);
+                WorldCursor cursor = new WorldCursor(world);
+                LongArray locations = world.getLocationsWithin(rawX, rawY, breakBrushSize);
+                for (int i = 0; i < locations.size; i++) {
+                    int x = CoordUtil.decompactX(locations.get(i));
+                    int y = CoordUtil.decompactY(locations.get(i));
+                    if (cursor.getMaterial(x, y) != Material.AIR) {
+                        cursor.remove(x, y, true);
+                    }
                 }
             }
             update = true;
@@ -70,8 +76,11 @@ public class KeyboardControls extends AbstractEntityControls {
                     selected.create(world, blockX, blockY);
                 }
                 else {
-                    for (Block block : world.getBlocksWithin(rawX, rawY, placeBrushSize, false)) {
-                        selected.create(world, block.getWorldX(), block.getWorldY());
+                    WorldCursor cursor = new WorldCursor(world);
+                    LongArray locations = world.getLocationsWithin(rawX, rawY, placeBrushSize);
+                    for (int i = 0; i < locations.size; i++) {
+                        long loc = locations.get(i);
+                        selected.create(cursor, CoordUtil.decompactX(loc), CoordUtil.decompactY(loc));
                     }
                 }
                 update = true;
@@ -119,10 +128,8 @@ public class KeyboardControls extends AbstractEntityControls {
     }
 
     private void applyImpulse(float impulseX, float impulseY) {
-        synchronized (BOX2D_LOCK) {
-            Body body = getControlled().getBody();
-            body.applyLinearImpulse(impulseX, impulseY, body.getPosition().x, body.getPosition().y, true);
-        }
+        getControlled().updateBody(body -> body.applyLinearImpulse(impulseX, impulseY, body.getPosition().x,
+                                                                   body.getPosition().y, true));
     }
 
     @Override
@@ -54,8 +54,7 @@ public class WorldInputHandler extends InputAdapter implements Disposable, Updat
                 }
                 break;
             case F5:
-                world.save();
-                Main.logger().log("World", "World saved");
+                world.saveAsync().thenRun(() -> Main.logger().log("World", "World saved"));
                 break;
             case F9:
                 world.load();
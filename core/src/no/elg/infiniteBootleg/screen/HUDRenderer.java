@@ -4,13 +4,23 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.TimeUtils;
 import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.Renderer;
-import no.elg.infiniteBootleg.world.Block;
+import no.elg.infiniteBootleg.util.CoordUtil;
+import no.elg.infiniteBootleg.util.Profiler;
+import no.elg.infiniteBootleg.util.TickHistogram;
+import no.elg.infiniteBootleg.util.Ticker;
 import no.elg.infiniteBootleg.world.Chunk;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.WorldCursor;
+import no.elg.infiniteBootleg.world.box2d.WorldBody;
+import no.elg.infiniteBootleg.world.loader.ChunkLoader;
+import no.elg.infiniteBootleg.world.render.ChunkRenderer;
+import no.elg.infiniteBootleg.world.render.ChunkTextureCache;
+import no.elg.infiniteBootleg.world.render.LightUpdater;
 import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
 import no.elg.infiniteBootleg.world.subgrid.LivingEntity;
+import org.jetbrains.annotations.NotNull;
 
 import static no.elg.infiniteBootleg.Main.SCALE;
 import static no.elg.infiniteBootleg.world.Block.BLOCK_SIZE;
@@ -29,7 +39,18 @@ public class HUDRenderer implements Renderer {
         NONE
     }
 
+    /**
+     * Number of characters in a full bar of the profiler graph
+     */
+    public static final int PROFILER_BAR_LENGTH = 40;
+    /**
+     * Bottom line of the profiler graph, above the legend of {@link no.elg.infiniteBootleg.world.render.DebugChunkRenderer}
+     */
+    private static final int PROFILER_LINE = 7;
+    private static final long FRAME_BUDGET_NANOS = 1_000_000_000L / 60;
+
     private HUDModus modus;
+    private final StringBuilder bar = new StringBuilder(PROFILER_BAR_LENGTH);
 
     public HUDRenderer() {
         modus = Main.debug ? HUDModus.DEBUG : HUDModus.NORMAL;
@@ -47,15 +68,17 @@ public class HUDRenderer implements Renderer {
         LivingEntity player = Main.inst().getPlayer();
         ScreenRenderer sr = Main.inst().getScreenRenderer();
         if (modus == HUDModus.DEBUG) {
-            Block block = world.getBlock(main.getMouseBlockX(), main.getMouseBlockY(), true);
-
             WorldRender.ChunkViewed vChunks = world.getRender().getChunksInView();
 
             int chunksHorz = vChunks.getHorizontalLength();
             int chunksVert = vChunks.getVerticalLength();
             int chunksInView = chunksHorz * chunksVert;
 
-            Chunk pc = world.getChunkFromWorld(main.getMouseBlockX(), main.getMouseBlockY());
+            Chunk pc = world.getChunkIfReady(CoordUtil.worldToChunk(main.getMouseBlockX()),
+                                             CoordUtil.worldToChunk(main.getMouseBlockY()));
+            Material pointingAt = pc == null ? Material.AIR :
+                                  pc.getMaterial(CoordUtil.chunkOffset(main.getMouseBlockX()),
+                                                 CoordUtil.chunkOffset(main.getMouseBlockY()));
 
             String fps = String.format("FPS: %4d delta: %.5f tps: %2d tps delta: %3d ms active threads %d",
                                        Gdx.graphics.getFramesPerSecond(), Gdx.graphics.getDeltaTime(),
@@ -63,10 +86,10 @@ public class HUDRenderer implements Renderer {
                                        TimeUtils.nanosToMillis(world.getWorldTicker().getTpsDelta()),
                                        Main.inst().getScheduler().getActiveThreads());
             String pointing = String.format("Pointing at %-5s (% 8.2f,% 8.2f) block (% 5d,% 5d) exists? %-5b",
-                                            block != null ? block.getMaterial() : Material.AIR, //
+                                            pointingAt, //
                                             main.getMouseX(), main.getMouseY(), //
                                             main.getMouseBlockX(), main.getMouseBlockY(), //
-                                            block != null);
+                                            pointingAt != Material.AIR);
             String chunk = pc == null ? "chunk (???,???) : type: ??? just air? ??? can unload? ???)" : String.format(
                 "chunk (% 4d,% 4d) : type: %-9.9s just air? %-5b can unload? %-5b)", //
                 pc.getChunkX(), pc.getChunkY(), //
@@ -87,6 +110,55 @@ public class HUDRenderer implements Renderer {
             String sky = String.format("time: %.2f scale: %.2f skycolor: %s", world.getTime(), world.getTimeScale(),
                                        world.getSkyBrightness());
 
+            String cursor = String.format("chunk cursor hits: %d misses: %d hit rate: %.2f%%", WorldCursor.getHits(),
+                                          WorldCursor.getMisses(), WorldCursor.getHitRate() * 100);
+
+            ChunkLoader loader = world.getChunkLoader();
+            String save = String.format(
+                "autosave every %ds: %d chunks (%d B) snapshot: %.3f ms write: %.3f ms total written: %d KiB",
+                Main.autosaveInterval, loader.getLastSavedChunks(), loader.getLastSavedBytes(),
+                loader.getLastSnapshotNanos() / 1_000_000f, loader.getLastWriteNanos() / 1_000_000f,
+                loader.getTotalBytesWritten() / 1024);
+
+            Ticker ticker = world.getWorldTicker();
+            TickHistogram durations = ticker.getTickDurations();
+            String tick = String.format("tick p50: %.3f ms p99: %.3f ms max: %.3f ms caught up: %d skipped: %d",
+                                        durations.getP50() / 1_000_000f, durations.getP99() / 1_000_000f,
+                                        durations.getMax() / 1_000_000f, ticker.getCatchUpTicks(),
+                                        ticker.getSkippedTicks());
+
+            LightUpdater lightUpdater = world.getRender().getLightUpdater();
+            String lights = lightUpdater == null ? "No lights" : String.format(
+                "light updates: %d p50: %.3f ms p99: %.3f ms max: %.3f ms", lightUpdater.getUpdates(),
+                lightUpdater.getUpdateDurations().getP50() / 1_000_000f,
+                lightUpdater.getUpdateDurations().getP99() / 1_000_000f,
+                lightUpdater.getUpdateDurations().getMax() / 1_000_000f);
+
+            WorldBody worldBody = world.getWorldBody();
+            TickHistogram lockWaits = worldBody.getLockWaits();
+            String box2d = String.format(
+                "box2d lock wait p50: %.3f ms p99: %.3f ms max: %.3f ms commands last tick: %d pending: %d",
+                lockWaits.getP50() / 1_000_000f, lockWaits.getP99() / 1_000_000f, lockWaits.getMax() / 1_000_000f,
+                worldBody.getLastCommandCount(), worldBody.getPendingCommandCount());
+
+            ChunkRenderer chunkRenderer = world.getRender().getChunkRenderer();
+            TickHistogram chunkTimes = chunkRenderer.getChunkRenderTimes();
+            String chunkRender = String.format(
+                "chunk render queue: %d rendered: %d (%d blocks) budget: %.2f ms chunk p50: %.3f ms p99: %.3f ms " +
+                "max: %.3f ms",
+                chunkRenderer.getQueueSize(), chunkRenderer.getLastRendered(),
+                chunkRenderer.getLastRepaintedBlocks(),
+                chunkRenderer.getBudgetNanos() / 1_000_000f, chunkTimes.getP50() / 1_000_000f,
+                chunkTimes.getP99() / 1_000_000f, chunkTimes.getMax() / 1_000_000f);
+
+            ChunkTextureCache textureCache = world.getRender().getChunkTextureCache();
+            String chunkTextures = String.format(
+                "chunk textures binds: %d overlays: %d pages: %d/%d cached: %d evictions: %d " +
+                "fbo allocs: %d/s (%d total)", world.getRender().getLastChunkTextureBinds(),
+                world.getRender().getLastOverlaysDrawn(), textureCache.getPageCount(), ChunkTextureCache.MAX_PAGES,
+                textureCache.getCachedChunks(), textureCache.getEvictions(), textureCache.getFboAllocationsPerSecond(),
+                textureCache.getFboAllocations());
+
             String nl = "\n    ";
             StringBuilder ents = new StringBuilder("E = ");
 
@@ -103,7 +175,17 @@ public class HUDRenderer implements Renderer {
             sr.drawTop(viewChunk, 7);
             sr.drawTop(pos, 9);
             sr.drawTop(sky, 11);
-            sr.drawTop(ents.toString().trim(), 13);
+            sr.drawTop(cursor, 13);
+            sr.drawTop(save, 15);
+            sr.drawTop(tick, 17);
+            sr.drawTop(lights, 19);
+            sr.drawTop(box2d, 21);
+            sr.drawTop(chunkRender, 23);
+            sr.drawTop(chunkTextures, 25);
+            sr.drawTop(ents.toString().trim(), 27);
+
+            int line = drawProfiler(sr, world.getRender().getRenderProfiler(), FRAME_BUDGET_NANOS, PROFILER_LINE);
+            drawProfiler(sr, world.getTickProfiler(), ticker.getNanoDelayBetweenTicks(), line + 1);
         }
         else {
             sr.begin();
@@ -118,6 +200,31 @@ public class HUDRenderer implements Renderer {
         sr.end();
     }
 
+    /**
+     * Draw a bar for each phase of the given profiler, the length of a bar is the mean duration of the phase relative to
+     * the given budget
+     *
+     * @return The line above the drawn graph
+     */
+    private <E extends Enum<E>> int drawProfiler(@NotNull ScreenRenderer sr, @NotNull Profiler<E> profiler,
+                                                 long budgetNanos, int line) {
+        E[] phases = profiler.getPhases();
+        for (int i = phases.length - 1; i >= 0; i--) {
+            long mean = profiler.getDurations(phases[i]).getMean();
+            int length = (int) Math.min(PROFILER_BAR_LENGTH, mean * PROFILER_BAR_LENGTH / budgetNanos);
+            bar.setLength(0);
+            for (int j = 0; j < PROFILER_BAR_LENGTH; j++) {
+                bar.append(j < length ? '#' : '.');
+            }
+            sr.drawBottom(String.format("%-14s %s %7.3f ms", phases[i].name().toLowerCase(), bar, mean / 1_000_000f),
+                          line);
+            line += 2;
+        }
+        sr.drawBottom(String.format("%s: %.3f ms of %.3f ms", profiler.getName(), profiler.getTotalMean() / 1_000_000f,
+                                    budgetNanos / 1_000_000f), line);
+        return line + 2;
+    }
+
     public HUDModus getModus() {
         return modus;
     }
@@ -120,4 +120,42 @@ public class CoordUtil {
     public static boolean isInsideChunk(int localX, int localY) {
         return localX >= 0 && localX < CHUNK_SIZE && localY >= 0 && localY < CHUNK_SIZE;
     }
+
+    /**
+     * Pack the given coordinates into a single long, the inverse is {@link #decompactX(long)} and {@link
+     * #decompactY(long)}
+     *
+     * @param x
+     *     The x coordinate
+     * @param y
+     *     The y coordinate
+     *
+     * @return Both coordinates stored in a single long
+     */
+    @Contract(pure = true)
+    public static long compactLoc(int x, int y) {
+        return ((long) x << Integer.SIZE) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param compactLoc
+     *     A location given by {@link #compactLoc(int, int)}
+     *
+     * @return The x coordinate of the given compact location
+     */
+    @Contract(pure = true)
+    public static int decompactX(long compactLoc) {
+        return (int) (compactLoc >> Integer.SIZE);
+    }
+
+    /**
+     * @param compactLoc
+     *     A location given by {@link #compactLoc(int, int)}
+     *
+     * @return The y coordinate of the given compact location
+     */
+    @Contract(pure = true)
+    public static int decompactY(long compactLoc) {
+        return (int) compactLoc;
+    }
 }
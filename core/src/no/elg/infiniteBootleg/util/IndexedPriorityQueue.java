@@ -0,0 +1,197 @@
+package no.elg.infiniteBootleg.util;
+
+import com.badlogic.gdx.utils.ObjectIntMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A binary min-heap where each element is at most once in the queue. The position of every element is indexed, so the
+ * priority of an element already in the queue can be changed in place.
+ * <p>
+ * {@link #offer(Object, double)}, {@link #poll()} and {@link #remove(Object)} are {@code O(log n)}, {@link
+ * #contains(Object)} is {@code O(1)}. This class is not thread safe.
+ *
+ * @param <T>
+ *     The type of elements in the queue
+ *
+ * @author Elg
+ */
+public class IndexedPriorityQueue<T> {
+
+    private T[] elements;
+    private double[] priorities;
+    private final ObjectIntMap<T> indices;
+    private int size;
+
+    public IndexedPriorityQueue() {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity
+     *     How many elements there is room for before the queue must grow
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedPriorityQueue(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        elements = (T[]) new Object[capacity];
+        priorities = new double[capacity];
+        indices = new ObjectIntMap<>(capacity);
+    }
+
+    /**
+     * Add the given element, or lower its priority if it is already queued with a higher priority
+     *
+     * @param element
+     *     The element to add
+     * @param priority
+     *     The priority of the element, lower priorities are polled first
+     *
+     * @return {@code true} if the element was added or its priority was lowered
+     */
+    public boolean offer(@NotNull T element, double priority) {
+        int index = indices.get(element, -1);
+        if (index >= 0) {
+            if (priority >= priorities[index]) {
+                return false;
+            }
+            priorities[index] = priority;
+            siftUp(index);
+            return true;
+        }
+        if (size == elements.length) {
+            grow();
+        }
+        elements[size] = element;
+        priorities[size] = priority;
+        indices.put(element, size);
+        siftUp(size++);
+        return true;
+    }
+
+    /**
+     * @return The element with the lowest priority, or {@code null} if the queue is empty
+     */
+    @Nullable
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T first = elements[0];
+        removeAt(0);
+        return first;
+    }
+
+    /**
+     * @return The element with the lowest priority without removing it, or {@code null} if the queue is empty
+     */
+    @Nullable
+    public T peek() {
+        return size == 0 ? null : elements[0];
+    }
+
+    /**
+     * @param element
+     *     The element to remove
+     *
+     * @return {@code true} if the element was in the queue
+     */
+    public boolean remove(@NotNull T element) {
+        int index = indices.get(element, -1);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    public boolean contains(@NotNull T element) {
+        return indices.containsKey(element);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[i] = null;
+        }
+        indices.clear();
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        indices.remove(elements[index], -1);
+        size--;
+        if (index != size) {
+            move(size, index);
+            elements[size] = null;
+            //the moved element might belong either above or below its new position
+            siftDown(index);
+            siftUp(index);
+        }
+        else {
+            elements[size] = null;
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (priorities[parent] <= priorities[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int smallest = right < size && priorities[right] < priorities[left] ? right : left;
+            if (priorities[index] <= priorities[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void move(int from, int to) {
+        elements[to] = elements[from];
+        priorities[to] = priorities[from];
+        indices.put(elements[to], to);
+    }
+
+    private void swap(int a, int b) {
+        T element = elements[a];
+        double priority = priorities[a];
+        elements[a] = elements[b];
+        priorities[a] = priorities[b];
+        elements[b] = element;
+        priorities[b] = priority;
+        indices.put(elements[a], a);
+        indices.put(elements[b], b);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        int capacity = elements.length * 2;
+        T[] newElements = (T[]) new Object[capacity];
+        System.arraycopy(elements, 0, newElements, 0, size);
+        elements = newElements;
+        double[] newPriorities = new double[capacity];
+        System.arraycopy(priorities, 0, newPriorities, 0, size);
+        priorities = newPriorities;
+    }
+}
@@ -33,19 +33,22 @@ public final class PointLightPool extends Pool<PointLight> {
         synchronized (WorldRender.LIGHT_LOCK) {
             light.setActive(true);
         }
+        Main.inst().getWorld().getRender().markLightsDirty();
         return light;
     }
 
     @Override
     protected void reset(PointLight light) {
-        light.setStaticLight(true);
-        light.setXray(false);
-        light.setSoft(true);
-        light.setSoftnessLength(World.POINT_LIGHT_SOFTNESS_LENGTH);
-        light.setDistance(POINT_LIGHT_DISTANCE);
-        light.setColor(Color.WHITE);
-        light.setContactFilter(World.LIGHT_FILTER);
-        light.setPosition(Float.MAX_VALUE, Float.MAX_VALUE);
+        synchronized (WorldRender.LIGHT_LOCK) {
+            light.setStaticLight(true);
+            light.setXray(false);
+            light.setSoft(true);
+            light.setSoftnessLength(World.POINT_LIGHT_SOFTNESS_LENGTH);
+            light.setDistance(POINT_LIGHT_DISTANCE);
+            light.setColor(Color.WHITE);
+            light.setContactFilter(World.LIGHT_FILTER);
+            light.setPosition(Float.MAX_VALUE, Float.MAX_VALUE);
+        }
     }
 
     @Override
@@ -64,5 +67,6 @@ public final class PointLightPool extends Pool<PointLight> {
         synchronized (WorldRender.LIGHT_LOCK) {
             light.setActive(false);
         }
+        Main.inst().getWorld().getRender().markLightsDirty();
     }
 }
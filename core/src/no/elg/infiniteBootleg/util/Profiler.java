@@ -0,0 +1,137 @@
+package no.elg.infiniteBootleg.util;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures how long each phase of a repeated task (like a tick or a frame) takes. The phases are given by an enum and
+ * the durations of the latest runs of each phase are kept in a {@link TickHistogram}.
+ * <p>
+ * Measuring does not allocate and costs a call to {@link System#nanoTime()} per phase, so it can always be on:
+ * <pre>{@code
+ * long time = profiler.start();
+ * doFirstPhase();
+ * time = profiler.lap(Phase.FIRST, time);
+ * doSecondPhase();
+ * profiler.lap(Phase.SECOND, time);
+ * }</pre>
+ * Each profiler must only be measured from one thread at a time, but can be read from any thread.
+ *
+ * @param <E>
+ *     The phases to measure
+ *
+ * @author Elg
+ */
+public class Profiler<E extends Enum<E>> {
+
+    /**
+     * Number of runs of each phase to keep
+     */
+    public static final int DEFAULT_SAMPLES = 256;
+
+    private final String name;
+    private final E[] phases;
+    private final TickHistogram[] durations;
+
+    /**
+     * @param name
+     *     Name of what is being profiled
+     * @param phaseClass
+     *     The enum of the phases to profile
+     */
+    public Profiler(@NotNull String name, @NotNull Class<E> phaseClass) {
+        this.name = name;
+        phases = phaseClass.getEnumConstants();
+        durations = new TickHistogram[phases.length];
+        for (int i = 0; i < phases.length; i++) {
+            durations[i] = new TickHistogram(DEFAULT_SAMPLES);
+        }
+    }
+
+    /**
+     * @return The time the first phase starts at
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record that the given phase has ended
+     *
+     * @param phase
+     *     The phase that just ended
+     * @param start
+     *     When the phase started, as returned by {@link #start()} or the previous call to this method
+     *
+     * @return The time the next phase starts at
+     */
+    public long lap(@NotNull E phase, long start) {
+        long now = System.nanoTime();
+        durations[phase.ordinal()].record(now - start);
+        return now;
+    }
+
+    /**
+     * @param phase
+     *     The phase to get the durations of
+     *
+     * @return The latest durations of the given phase
+     */
+    @NotNull
+    public TickHistogram getDurations(@NotNull E phase) {
+        return durations[phase.ordinal()];
+    }
+
+    /**
+     * @return All the phases of this profiler
+     */
+    @NotNull
+    public E[] getPhases() {
+        return phases.clone();
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The sum of the average duration of each phase, in nanoseconds
+     */
+    public long getTotalMean() {
+        long total = 0;
+        for (TickHistogram duration : durations) {
+            total += duration.getMean();
+        }
+        return total;
+    }
+
+    /**
+     * Forget all measurements
+     */
+    public void reset() {
+        for (TickHistogram duration : durations) {
+            duration.reset();
+        }
+    }
+
+    /**
+     * @return A human readable table of the statistics of each phase
+     */
+    @NotNull
+    public String report() {
+        StringBuilder sb = new StringBuilder(name).append(" (ms)\n");
+        sb.append(String.format("%-12s %8s %8s %8s %8s%n", "phase", "mean", "p50", "p99", "max"));
+        for (E phase : phases) {
+            TickHistogram duration = durations[phase.ordinal()];
+            sb.append(String.format("%-12s %8.3f %8.3f %8.3f %8.3f%n", phase.name().toLowerCase(),
+                                    duration.getMean() / 1_000_000f, duration.getP50() / 1_000_000f,
+                                    duration.getP99() / 1_000_000f, duration.getMax() / 1_000_000f));
+        }
+        return sb.toString().trim();
+    }
+
+    @Override
+    public String toString() {
+        return name + " profiler";
+    }
+}
@@ -0,0 +1,109 @@
+package no.elg.infiniteBootleg.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last {@link #getCapacity()} durations recorded and calculates percentiles over them
+ *
+ * @author Elg
+ */
+public class TickHistogram {
+
+    private final long[] samples;
+    private final long[] sorted;
+    private int next;
+    private int size;
+    private long max;
+    private long sum;
+
+    /**
+     * @param capacity
+     *     How many of the latest samples to keep
+     */
+    public TickHistogram(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be strictly positive");
+        samples = new long[capacity];
+        sorted = new long[capacity];
+    }
+
+    /**
+     * @param nanos
+     *     The duration to record, in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        if (size == samples.length) {
+            sum -= samples[next];
+        }
+        sum += nanos;
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * @param percentile
+     *     The percentile to get, between 0 and 1 (both inclusive)
+     *
+     * @return The duration, in nanoseconds, that the given fraction of the kept samples are shorter than or equal to.
+     * Zero if nothing has been recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 1, "Percentile must be between 0 and 1");
+        if (size == 0) {
+            return 0;
+        }
+        System.arraycopy(samples, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * @return The median of the kept samples, in nanoseconds
+     */
+    public long getP50() {
+        return getPercentile(0.5);
+    }
+
+    /**
+     * @return The 99th percentile of the kept samples, in nanoseconds
+     */
+    public long getP99() {
+        return getPercentile(0.99);
+    }
+
+    /**
+     * @return The average of the kept samples, in nanoseconds
+     */
+    public synchronized long getMean() {
+        return size == 0 ? 0 : sum / size;
+    }
+
+    /**
+     * @return The longest duration recorded since the last {@link #reset()}, in nanoseconds
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    /**
+     * Forget all recorded samples
+     */
+    public synchronized void reset() {
+        next = 0;
+        size = 0;
+        max = 0;
+        sum = 0;
+    }
+}
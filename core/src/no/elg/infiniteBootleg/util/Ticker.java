@@ -1,6 +1,5 @@
 package no.elg.infiniteBootleg.util;
 
-import com.badlogic.gdx.Graphics;
 import com.badlogic.gdx.utils.PauseableThread;
 import com.badlogic.gdx.utils.TimeUtils;
 import no.elg.infiniteBootleg.Main;
@@ -8,13 +7,17 @@ import no.elg.infiniteBootleg.Ticking;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * A helper class that calls a {@link Ticking}'s {@link Ticking#tick()} and {@link Ticking#tickRare()} method
  * periodically. By
- * default it will call it every {@link #msDelayBetweenTicks}.
+ * default it will call it every {@link #nanoDelayBetweenTicks}.
  * <p>
- * The ticker will not update the if {@link Graphics#getFrameId()} is the same as it was last tick
- * (as can be caused by fps lag), and will warn when too many ticks have been skipped.
+ * Ticks are run at a fixed timestep: each tick is due exactly {@link #nanoDelayBetweenTicks} after the previous one was
+ * due, no matter how long the tick took. The thread is parked with nanosecond precision until the next tick is due. If
+ * the ticker falls behind it runs the missed ticks back to back to catch up, but at most {@link #MAX_CATCH_UP_TICKS}.
+ * Ticks beyond that are skipped, counted (see {@link #getSkippedTicks()}) and warned about.
  *
  * @author Elg
  */
@@ -25,6 +28,14 @@ public class Ticker implements Runnable {
      * How many seconds to wait (based on the tps) between each lag message
      */
     public static final double DEFAULT_NAG_DELAY = 3d;
+    /**
+     * Maximum number of late ticks to run back to back, if the ticker is further behind the rest is skipped
+     */
+    public static final long MAX_CATCH_UP_TICKS = 5;
+    /**
+     * Number of tick durations kept in the histogram
+     */
+    public static final int HISTOGRAM_SIZE = 512;
 
     private final PauseableThread tickerThread;
     private final Ticking ticking;
@@ -73,6 +84,18 @@ public class Ticker implements Runnable {
      */
     private long lastTickNagged;
 
+    /**
+     * When the next tick is due, in {@link System#nanoTime()}
+     */
+    private long nextTickNanos;
+    /**
+     * If the timestep should start over from now, ie after being paused
+     */
+    private volatile boolean resync = true;
+    private volatile long skippedTicks;
+    private volatile long catchUpTicks;
+    private final TickHistogram tickDurations;
+
 
     /**
      * Use {@link #DEFAULT_TICKS_PER_SECOND} for {@code #tps} and {@link #DEFAULT_NAG_DELAY} for nag delay
@@ -133,6 +156,7 @@ public class Ticker implements Runnable {
         secondsDelayBetweenTicks = 1f / tps;
         tickRareRate = this.tps;
         this.nagDelayTicks = (long) Math.max(0, tps * nagDelay);
+        tickDurations = new TickHistogram(HISTOGRAM_SIZE);
 
         Main.logger().debug(tag, "Starting ticking thread for '" + name + "' with TPS = " + tps);
 
@@ -148,7 +172,36 @@ public class Ticker implements Runnable {
 
     @Override
     public void run() {
-        long start = TimeUtils.nanoTime();
+        long now = System.nanoTime();
+        if (resync) {
+            resync = false;
+            nextTickNanos = now;
+        }
+        long wait = nextTickNanos - now;
+        if (wait > 0) {
+            //the thread might wake up early, it will then be parked again by the next call
+            LockSupport.parkNanos(this, wait);
+            return;
+        }
+
+        long behind = -wait / nanoDelayBetweenTicks;
+        if (behind > 0) {
+            if (behind > MAX_CATCH_UP_TICKS) {
+                long skipped = behind - MAX_CATCH_UP_TICKS;
+                skippedTicks += skipped;
+                nextTickNanos += skipped * nanoDelayBetweenTicks;
+                if (tickId - lastTickNagged >= nagDelayTicks) {
+                    lastTickNagged = tickId;
+                    Main.logger().error(tag, "Cant keep up, skipping " + skipped + " ticks. The last tick took around " +
+                                             TimeUtils.nanosToMillis(tpsDelta) + " ms, while at max it should take " +
+                                             getMsDelayBetweenTicks() + " ms " + getNanoDelayBetweenTicks() + " ns");
+                }
+            }
+            catchUpTicks++;
+        }
+        nextTickNanos += nanoDelayBetweenTicks;
+
+        long start = System.nanoTime();
         try {
             ticking.tick();
             if (tickId % tickRareRate == 0) {
@@ -167,24 +220,8 @@ public class Ticker implements Runnable {
         }
         tpsTick++;
 
-        tpsDelta = TimeUtils.nanoTime() - start;
-        long ms = msDelayBetweenTicks - TimeUtils.nanosToMillis(tpsDelta);
-
-
-        if (ms > 0) {
-            int nano = (int) tpsDelta % 1_000_000; // There are one million nano second in a millisecond
-            try {
-                Thread.sleep(ms, nano);
-            } catch (InterruptedException e) {
-                Main.logger().error(tag, "Ticker interrupted");
-            }
-        }
-        else if (tickId - lastTickNagged >= nagDelayTicks) {
-            lastTickNagged = tickId;
-            Main.logger().error(tag, "Cant keep up a single tick took around " + TimeUtils.nanosToMillis(tpsDelta) +
-                                     " ms, while at max it should take " + getMsDelayBetweenTicks() + " ms " +
-                                     getNanoDelayBetweenTicks() + " ns");
-        }
+        tpsDelta = System.nanoTime() - start;
+        tickDurations.record(tpsDelta);
     }
 
     /**
@@ -223,12 +260,34 @@ public class Ticker implements Runnable {
     }
 
     /**
-     * @return Nanoseconds between each tick
+     * @return How long the last tick took, in nanoseconds
      */
     public long getTpsDelta() {
         return tpsDelta;
     }
 
+    /**
+     * @return Number of ticks skipped because the ticker was too far behind
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * @return Number of ticks that was run late to catch up
+     */
+    public long getCatchUpTicks() {
+        return catchUpTicks;
+    }
+
+    /**
+     * @return The durations of the latest ticks
+     */
+    @NotNull
+    public TickHistogram getTickDurations() {
+        return tickDurations;
+    }
+
     /**
      * Stop this ticker, the tickers thread will not be called anymore
      */
@@ -253,6 +312,8 @@ public class Ticker implements Runnable {
      * @see #pause()
      */
     public void resume() {
+        //do not try to catch up on the ticks missed while paused
+        resync = true;
         tickerThread.onResume();
     }
 
@@ -49,24 +49,32 @@ public class ZipUtils {
         }
     }
 
-    public static void unzip(@NotNull FileHandle directory, @NotNull FileHandle zipFile) {
-        try {
-            ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile.file()));
+    /**
+     * Extract the given zip into the given directory
+     *
+     * @param directory
+     *     The directory to extract to
+     * @param zipFile
+     *     The zip to extract
+     *
+     * @throws IOException
+     *     If the zip could not be read or a file could not be written, some files might already have been extracted
+     */
+    public static void unzip(@NotNull FileHandle directory, @NotNull FileHandle zipFile) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile.file()))) {
             ZipEntry ze = zis.getNextEntry();
 
             while (ze != null) {
                 if (!ze.isDirectory()) {
                     FileHandle newFile = directory.child(ze.getName());
                     newFile.parent().mkdirs();
-                    StreamUtils.copyStream(zis, newFile.write(false));
+                    try (OutputStream out = newFile.write(false)) {
+                        StreamUtils.copyStream(zis, out);
+                    }
                 }
                 ze = zis.getNextEntry();
             }
             zis.closeEntry();
-            zis.close();
-
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 }
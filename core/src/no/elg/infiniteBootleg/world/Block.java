@@ -11,6 +11,12 @@ import org.jetbrains.annotations.Nullable;
  * A block in the world each block is a part of a chunk which is a part of a world. Each block know its world location
  * and its
  * location within the parent chunk.
+ * <p>
+ * Only blocks of {@link Material#isStateful() stateful} materials are stored by their chunk. The shared state of all
+ * other blocks lives in their {@link Material} and their position in the chunk's {@link PalettedBlockStorage}, so a
+ * {@code Block} of a stateless material is only a short-lived view of a location and is created on demand. Two views
+ * of the same location are equal, but not necessarily the same instance. Use {@link Chunk#getMaterial(int, int)} or
+ * {@link World#isAir(int, int)} where only the material is needed.
  *
  * @author Elg
  */
@@ -34,11 +40,37 @@ public class Block implements Binembly, Disposable {
         this.chunk = chunk;
     }
 
+    /**
+     * @return The texture rendered into the texture of the chunk, the chunk must be updated when this changes
+     */
     @Nullable
     public TextureRegion getTexture() {
         return getMaterial().getTextureRegion();
     }
 
+    /**
+     * Only blocks of a {@link Material#isStateful() stateful} material can have an overlay. Must not change while
+     * the block is in a chunk
+     *
+     * @return If this block might have an {@link #getOverlayTexture() overlay texture}
+     */
+    public boolean hasOverlay() {
+        return false;
+    }
+
+    /**
+     * Texture drawn on top of the texture of the chunk every frame, meant for blocks that change how they look often.
+     * Unlike {@link #getTexture()} the chunk does not need to be updated when this changes
+     *
+     * @return The texture drawn over this block, or {@code null} to draw nothing
+     *
+     * @see #hasOverlay()
+     */
+    @Nullable
+    public TextureRegion getOverlayTexture() {
+        return null;
+    }
+
     @NotNull
     public Material getMaterial() {
         return material;
@@ -112,11 +144,32 @@ public class Block implements Binembly, Disposable {
         int newWorldY = getWorldY() + dir.dy;
         if (CoordUtil.worldToChunk(newWorldX) == chunk.getChunkX() && //
             CoordUtil.worldToChunk(newWorldY) == chunk.getChunkY()) {
-            return chunk.getBlocks()[localX + dir.dx][localY + dir.dy];
+            return chunk.getRawBlock(localX + dir.dx, localY + dir.dy);
         }
         return world.getBlock(newWorldX, newWorldY, true);
     }
 
+    /**
+     * Same as {@code getRelative(dir).getMaterial()} but without creating a block
+     *
+     * @param dir
+     *     The relative direction
+     *
+     * @return The material of the relative block in the given location
+     */
+    @NotNull
+    public Material getRelativeMaterial(@NotNull Direction dir) {
+        int localX = this.localX + dir.dx;
+        int localY = this.localY + dir.dy;
+        if (CoordUtil.isInsideChunk(localX, localY)) {
+            return chunk.getMaterial(localX, localY);
+        }
+        Chunk other = world.getChunkFromWorld(getWorldX() + dir.dx, getWorldY() + dir.dy);
+        return other == null ? Material.AIR :
+               other.getMaterial(CoordUtil.chunkOffset(getWorldX() + dir.dx),
+                                 CoordUtil.chunkOffset(getWorldY() + dir.dy));
+    }
+
     public Block setBlock(@NotNull Material material) {
         return setBlock(material, true);
     }
@@ -0,0 +1,119 @@
+package no.elg.infiniteBootleg.world;
+
+import com.badlogic.gdx.utils.Array;
+import no.elg.infiniteBootleg.world.blocks.TickingBlock;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A queue of {@link TickingBlock}s to tick, ordered by the tick they are due. Only blocks that has been scheduled are
+ * ticked, blocks that are not scheduled cost nothing.
+ * <p>
+ * A block is at most scheduled once, scheduling a block that is already scheduled keeps the earliest of the two ticks.
+ *
+ * @author Elg
+ */
+public class BlockTickScheduler {
+
+    private final World world;
+    private final PriorityQueue<Entry> queue;
+    /**
+     * The tick each block in the queue is due, entries in the queue not matching this are stale
+     */
+    private final Map<TickingBlock, Long> scheduled;
+    private final Array<TickingBlock> due;
+    private long sequence;
+
+    public BlockTickScheduler(@NotNull World world) {
+        this.world = world;
+        queue = new PriorityQueue<>();
+        scheduled = new IdentityHashMap<>();
+        due = new Array<>(false, 64);
+    }
+
+    /**
+     * Tick the given block in the given number of ticks
+     *
+     * @param block
+     *     The block to tick
+     * @param delay
+     *     Number of ticks from the current tick, values less than one are treated as one
+     */
+    public synchronized void schedule(@NotNull TickingBlock block, long delay) {
+        long dueTick = world.getTick() + Math.max(1, delay);
+        Long current = scheduled.get(block);
+        if (current != null && current <= dueTick) {
+            return;
+        }
+        scheduled.put(block, dueTick);
+        queue.add(new Entry(dueTick, sequence++, block));
+    }
+
+    /**
+     * Remove all blocks due at or before the given tick from the queue. Blocks that have been removed from their chunk
+     * are dropped, blocks whose chunk is not yet part of the world are postponed to the next tick.
+     * <p>
+     * The returned array is reused by the next call and must only be used by the ticker thread
+     *
+     * @param tick
+     *     The current tick
+     *
+     * @return The blocks to tick this tick
+     */
+    @NotNull
+    public synchronized Array<TickingBlock> pollDue(long tick) {
+        due.clear();
+        Entry entry;
+        while ((entry = queue.peek()) != null && entry.dueTick <= tick) {
+            queue.poll();
+            TickingBlock block = entry.block;
+            Long dueTick = scheduled.get(block);
+            if (dueTick == null || dueTick != entry.dueTick) {
+                //rescheduled to an earlier tick
+                continue;
+            }
+            scheduled.remove(block);
+
+            Chunk chunk = block.getChunk();
+            if (!chunk.isLoaded() || chunk.getStatefulBlock(block.getLocalX(), block.getLocalY()) != block) {
+                continue;
+            }
+            if (!world.isChunkLoaded(chunk.getChunkX(), chunk.getChunkY())) {
+                scheduled.put(block, tick + 1);
+                queue.add(new Entry(tick + 1, sequence++, block));
+                continue;
+            }
+            due.add(block);
+        }
+        return due;
+    }
+
+    /**
+     * @return Number of blocks currently scheduled
+     */
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final long dueTick;
+        private final long sequence;
+        private final TickingBlock block;
+
+        private Entry(long dueTick, long sequence, @NotNull TickingBlock block) {
+            this.dueTick = dueTick;
+            this.sequence = sequence;
+            this.block = block;
+        }
+
+        @Override
+        public int compareTo(@NotNull Entry o) {
+            int cmp = Long.compare(dueTick, o.dueTick);
+            return cmp != 0 ? cmp : Long.compare(sequence, o.sequence);
+        }
+    }
+}
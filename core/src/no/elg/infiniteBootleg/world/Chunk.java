@@ -1,22 +1,20 @@
 package no.elg.infiniteBootleg.world;
 
-import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.utils.Disposable;
 import com.google.common.base.Preconditions;
 import no.elg.infiniteBootleg.Main;
-import no.elg.infiniteBootleg.Ticking;
 import no.elg.infiniteBootleg.util.Binembly;
 import no.elg.infiniteBootleg.util.CoordUtil;
 import no.elg.infiniteBootleg.world.blocks.TickingBlock;
 import no.elg.infiniteBootleg.world.box2d.ChunkBody;
+import no.elg.infiniteBootleg.world.loader.ChunkCodec;
+import no.elg.infiniteBootleg.world.loader.ChunkStateCodec;
+import no.elg.infiniteBootleg.world.render.ChunkTextureCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -30,35 +28,53 @@ import static no.elg.infiniteBootleg.world.Material.AIR;
  *
  * @author Elg
  */
-public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
+public class Chunk implements Iterable<Block>, Disposable, Binembly {
 
     public static final int CHUNK_SIZE = 32;
     public final static int CHUNK_TEXTURE_SIZE = CHUNK_SIZE * BLOCK_SIZE;
     public static final int CHUNK_SIZE_SHIFT = (int) (Math.log(CHUNK_SIZE) / Math.log(2));
-    public static final String CHUNK_FOLDER = "chunks";
 
     private final World world;
-    private final Block[][] blocks;
+    private final PalettedBlockStorage blocks;
+    /**
+     * Blocks with a {@link Material#isStateful() stateful} material, indexed by {@link
+     * PalettedBlockStorage#index(int, int)}. Only created when the first stateful block is placed
+     */
+    private Block[] statefulBlocks;
+    /**
+     * Blocks that {@link Block#hasOverlay() has an overlay}. Replaced instead of changed so it can be read without
+     * locking
+     */
+    private volatile Block[] overlayBlocks = NO_BLOCKS;
+    private static final Block[] NO_BLOCKS = new Block[0];
 
     private final int chunkX;
     private final int chunkY;
 
-    private final Set<TickingBlock> tickingBlocks;
-
     //if this chunk should be prioritized to be updated
     private boolean dirty; //if texture/allair needs to be updated
     private boolean prioritize;
-    private boolean modified; //if the chunk has been modified since loaded
+    private volatile boolean modified; //if the chunk has been modified since loaded or last saved
+    private boolean savedState; //if the chunk had block states or entities when it was loaded or last saved
     private boolean loaded; //once unloaded it no longer is valid
     private boolean allowUnload;
     private boolean initializing;
     private boolean allAir;
+    /**
+     * Local coordinates, both inclusive, of the blocks changed since this chunk was last rendered. Nothing is changed
+     * when the minimum is greater than the maximum
+     */
+    private int dirtyMinX = CHUNK_SIZE;
+    private int dirtyMinY = CHUNK_SIZE;
+    private int dirtyMaxX = -1;
+    private int dirtyMaxY = -1;
 
     private long lastViewedTick;
-    private TextureRegion fboRegion;
-    private FileHandle chunkFile;
-    private FrameBuffer fbo;
     private final ChunkBody chunkBody;
+    /**
+     * Entities saved with this chunk that has not been spawned yet
+     */
+    private byte[] savedEntities;
 
     /**
      * Create a new empty chunk
@@ -71,28 +87,11 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
      *     The position y of this chunk the given world
      */
     public Chunk(@NotNull World world, int chunkX, int chunkY) {
-        this(world, chunkX, chunkY, new Block[CHUNK_SIZE][CHUNK_SIZE]);
-    }
-
-    /**
-     * @param world
-     *     The world this chunk exists in
-     * @param chunkX
-     *     The position x of this chunk the given world
-     * @param chunkY
-     *     The position y of this chunk the given world
-     * @param blocks
-     *     The initial blocks of this chunk (note: must be {@link #CHUNK_SIZE}x{@link #CHUNK_SIZE})
-     */
-    public Chunk(@NotNull World world, int chunkX, int chunkY, @NotNull Block[][] blocks) {
-        Preconditions.checkArgument(blocks.length == CHUNK_SIZE);
-        Preconditions.checkArgument(blocks[0].length == CHUNK_SIZE);
         this.world = world;
-        this.blocks = blocks;
+        this.blocks = new PalettedBlockStorage();
         this.chunkX = chunkX;
         this.chunkY = chunkY;
 
-        tickingBlocks = Collections.synchronizedSet(new HashSet<>());
         chunkBody = new ChunkBody(this);
 
         dirty = true;
@@ -117,19 +116,7 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
         dirty = false;
 
         //test if all the blocks in this chunk has the material air
-        allAir = true;
-        outer:
-        synchronized (this) {
-            for (int localX = 0; localX < CHUNK_SIZE; localX++) {
-                for (int localY = 0; localY < CHUNK_SIZE; localY++) {
-                    Block b = blocks[localX][localY];
-                    if (b != null && b.getMaterial() != AIR) {
-                        allAir = false;
-                        break outer;
-                    }
-                }
-            }
-        }
+        allAir = blocks.isAllAir();
         if (Main.renderGraphic) {
             world.getRender().getChunkRenderer().queueRendering(this, prioritize);
             prioritize = false;
@@ -150,13 +137,40 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
         Preconditions.checkArgument(CoordUtil.isInsideChunk(localX, localY),
                                     "Given arguments are not inside this chunk, localX=" + localX + " localY=" +
                                     localY);
-        Block block = blocks[localX][localY];
-
-        if (block == null) {
-            block = setBlock(localX, localY, AIR, false);
+        Block block = getStatefulBlock(localX, localY);
+        if (block != null) {
+            return block;
         }
-        //noinspection ConstantConditions block will not be null when material is not null
-        return block;
+        return new Block(world, this, localX, localY, blocks.get(localX, localY));
+    }
+
+    /**
+     * Read the material directly from the underlying storage, this will never create any block.
+     *
+     * @param localX
+     *     The local x ie a value between 0 and {@link #CHUNK_SIZE}
+     * @param localY
+     *     The local y ie a value between 0 and {@link #CHUNK_SIZE}
+     *
+     * @return The material at the given local coordinates
+     */
+    @NotNull
+    public Material getMaterial(int localX, int localY) {
+        return blocks.get(localX, localY);
+    }
+
+    /**
+     * @param localX
+     *     The local x ie a value between 0 and {@link #CHUNK_SIZE}
+     * @param localY
+     *     The local y ie a value between 0 and {@link #CHUNK_SIZE}
+     *
+     * @return The block at the given local coordinates if its material is {@link Material#isStateful() stateful}
+     */
+    @Nullable
+    public Block getStatefulBlock(int localX, int localY) {
+        Block[] statefulBlocks = this.statefulBlocks;
+        return statefulBlocks == null ? null : statefulBlocks[PalettedBlockStorage.index(localX, localY)];
     }
 
     /**
@@ -187,12 +201,43 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
      * @param update
      *     If the texture of this chunk should be updated
      *
-     * @return The new block, only {@code null} if {@code material} parameter is {@code null}
+     * @return The new block, {@code null} if {@code material} parameter is {@code null} or the material did not change
      */
     @Nullable
     public Block setBlock(int localX, int localY, @Nullable Material material, boolean update) {
-        Block block = material == null ? null : material.createBlock(world, this, localX, localY);
-        return setBlock(localX, localY, block, update);
+        if (material != null && material.isStateful()) {
+            return setBlock(localX, localY, material.createBlock(world, this, localX, localY), update);
+        }
+        if (setMaterial(localX, localY, material, update) && material != null) {
+            return new Block(world, this, localX, localY, material);
+        }
+        return null;
+    }
+
+    /**
+     * Set the material at the given location without creating a {@link Block} object unless the material is {@link
+     * Material#isStateful() stateful}. Prefer this over {@link #setBlock(int, int, Material, boolean)} when the new
+     * block is not needed, ie when generating chunks.
+     *
+     * @param localX
+     *     The local x ie a value between 0 and {@link #CHUNK_SIZE}
+     * @param localY
+     *     The local y ie a value between 0 and {@link #CHUNK_SIZE}
+     * @param material
+     *     The new material, {@code null} is the same as {@link Material#AIR}
+     * @param update
+     *     If the texture of this chunk should be updated
+     *
+     * @return If the material at the given location changed
+     */
+    public boolean setMaterial(int localX, int localY, @Nullable Material material, boolean update) {
+        if (material == null) {
+            material = AIR;
+        }
+        else if (material.isStateful()) {
+            return setBlock(localX, localY, material.createBlock(world, this, localX, localY), update) != null;
+        }
+        return setBlock(localX, localY, material, null, update);
     }
 
     /**
@@ -205,49 +250,68 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
      * @param updateTexture
      *     If the texture of this chunk should be updated
      *
-     * @return The given block, equal to the {@code block} parameter
+     * @return The given block, equal to the {@code block} parameter, or {@code null} if the material did not change
      */
     @Nullable
-    public synchronized Block setBlock(int localX, int localY, @Nullable Block block, boolean updateTexture) {
-        Preconditions.checkState(loaded, "Chunk is not loaded");
+    public Block setBlock(int localX, int localY, @Nullable Block block, boolean updateTexture) {
+        if (block == null) {
+            setBlock(localX, localY, AIR, null, updateTexture);
+            return null;
+        }
+        Preconditions.checkArgument(block.getLocalX() == localX);
+        Preconditions.checkArgument(block.getLocalY() == localY);
+        Preconditions.checkArgument(block.getChunk() == this);
 
-        if (block != null) {
-            Preconditions.checkArgument(block.getLocalX() == localX);
-            Preconditions.checkArgument(block.getLocalY() == localY);
-            Preconditions.checkArgument(block.getChunk() == this);
+        Material material = block.getMaterial();
+        if (setBlock(localX, localY, material, material.isStateful() ? block : null, updateTexture)) {
+            return block;
         }
-        Block currBlock = blocks[localX][localY];
+        block.dispose();
+        return null;
+    }
 
-        if ((currBlock == null && block == null) ||
-            (currBlock != null && block != null && currBlock.getMaterial() == block.getMaterial())) {
-            if (block != null) { block.dispose(); }
-            return null;
+    /**
+     * @param material
+     *     The new material
+     * @param statefulBlock
+     *     The block to store, must be non-null if and only if the material is {@link Material#isStateful()
+     *     stateful}
+     *
+     * @return If the material at the given location changed
+     */
+    private synchronized boolean setBlock(int localX, int localY, @NotNull Material material,
+                                          @Nullable Block statefulBlock, boolean updateTexture) {
+        Preconditions.checkState(loaded, "Chunk is not loaded");
+        int index = PalettedBlockStorage.index(localX, localY);
+
+        if (blocks.get(index) == material) {
+            return false;
         }
 
+        Block currBlock = statefulBlocks == null ? null : statefulBlocks[index];
         if (currBlock != null) {
+            //a scheduled tick of the old block is dropped as it is no longer in this chunk
             currBlock.dispose();
-        }
-
-        if (block == null) {
-            blocks[localX][localY] = null;
-            if (currBlock instanceof TickingBlock) {
-                synchronized (tickingBlocks) {
-                    tickingBlocks.remove(currBlock);
-                }
+            statefulBlocks[index] = null;
+            if (currBlock.hasOverlay()) {
+                removeOverlayBlock(currBlock);
             }
         }
-        else {
-            blocks[localX][localY] = block;
 
-            if (currBlock instanceof TickingBlock && !(block instanceof TickingBlock)) {
-                synchronized (tickingBlocks) {
-                    tickingBlocks.remove(currBlock);
-                }
+        blocks.set(index, material);
+        markBlockDirty(localX, localY);
+
+        if (statefulBlock != null) {
+            if (statefulBlocks == null) {
+                statefulBlocks = new Block[PalettedBlockStorage.SIZE];
             }
-            if (block instanceof TickingBlock) {
-                synchronized (tickingBlocks) {
-                    tickingBlocks.add((TickingBlock) block);
-                }
+            statefulBlocks[index] = statefulBlock;
+            if (statefulBlock.hasOverlay()) {
+                addOverlayBlock(statefulBlock);
+            }
+            if (!initializing && statefulBlock instanceof TickingBlock &&
+                ((TickingBlock) statefulBlock).tickWhenLoaded()) {
+                ((TickingBlock) statefulBlock).wake();
             }
         }
 
@@ -258,7 +322,7 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
 
             world.updateBlocksAround(getWorldX(localX), getWorldY(localY));
         }
-        return block;
+        return true;
     }
 
     /**
@@ -268,69 +332,144 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
      *     If this chunk should be prioritized when rendering
      */
     public void updateTexture(boolean prioritize) {
+        synchronized (this) {
+            dirtyMinX = 0;
+            dirtyMinY = 0;
+            dirtyMaxX = CHUNK_SIZE - 1;
+            dirtyMaxY = CHUNK_SIZE - 1;
+        }
         dirty = true;
         modified = true;
         this.prioritize = prioritize;
     }
 
     /**
-     * Might cause a call to {@link #updateTextureNow()} if the chunk is marked as dirty
+     * Update the texture of a single block, only this block will be rendered again
      *
-     * @return The texture of this chunk
+     * @param localX
+     *     The local x ∈ [0, {@value #CHUNK_SIZE})
+     * @param localY
+     *     The local y ∈ [0, {@value #CHUNK_SIZE})
+     * @param prioritize
+     *     If this chunk should be prioritized when rendering
      */
-    @Nullable
-    public TextureRegion getTextureRegion() {
-        if (dirty) {
-            updateTextureNow();
+    public void updateTexture(int localX, int localY, boolean prioritize) {
+        synchronized (this) {
+            markBlockDirty(localX, localY);
         }
-        return fboRegion;
+        dirty = true;
+        modified = true;
+        this.prioritize = prioritize;
     }
 
-    public void view() {
-        lastViewedTick = world.getTick();
+    private void markBlockDirty(int localX, int localY) {
+        if (localX < dirtyMinX) { dirtyMinX = localX; }
+        if (localY < dirtyMinY) { dirtyMinY = localY; }
+        if (localX > dirtyMaxX) { dirtyMaxX = localX; }
+        if (localY > dirtyMaxY) { dirtyMaxY = localY; }
     }
 
-    public FrameBuffer getFbo() {
-        if (fbo == null) {
-            fbo = new FrameBuffer(Pixmap.Format.RGBA4444, CHUNK_TEXTURE_SIZE, CHUNK_TEXTURE_SIZE, false);
-            fbo.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
-            fboRegion = new TextureRegion(fbo.getColorBufferTexture());
-            fboRegion.flip(false, true);
+    private void addOverlayBlock(@NotNull Block block) {
+        Block[] old = overlayBlocks;
+        Block[] updated = Arrays.copyOf(old, old.length + 1);
+        updated[old.length] = block;
+        overlayBlocks = updated;
+    }
+
+    private void removeOverlayBlock(@NotNull Block block) {
+        Block[] old = overlayBlocks;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == block) {
+                Block[] updated = new Block[old.length - 1];
+                System.arraycopy(old, 0, updated, 0, i);
+                System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                overlayBlocks = updated.length == 0 ? NO_BLOCKS : updated;
+                return;
+            }
         }
-        return fbo;
     }
 
     /**
-     * Update all updatable blocks in this chunk
+     * Can be called from any thread without locking this chunk
+     *
+     * @return The blocks of this chunk that {@link Block#hasOverlay() has an overlay}, the array must not be modified
      */
-    @Override
-    public void tick() {
-        synchronized (tickingBlocks) {
-            for (TickingBlock block : tickingBlocks) {
-                block.tryTick(false);
-            }
+    @NotNull
+    public Block[] getOverlayBlocks() {
+        return overlayBlocks;
+    }
+
+    /**
+     * Get and forget the area of this chunk changed since this method was last called. Must be called while
+     * synchronized on this chunk and holding the lock until the area is rendered
+     *
+     * @param area
+     *     Array of at least length four where the minimum x, minimum y, maximum x, and maximum y (all inclusive) of
+     *     the changed blocks will be stored
+     *
+     * @return {@code false} if no blocks has changed, the given array is then left unchanged
+     */
+    public boolean pollDirtyArea(@NotNull int[] area) {
+        Preconditions.checkState(Thread.holdsLock(this), "Must be synchronized on the chunk");
+        if (dirtyMinX > dirtyMaxX) {
+            return false;
         }
+        area[0] = dirtyMinX;
+        area[1] = dirtyMinY;
+        area[2] = dirtyMaxX;
+        area[3] = dirtyMaxY;
+        dirtyMinX = CHUNK_SIZE;
+        dirtyMinY = CHUNK_SIZE;
+        dirtyMaxX = -1;
+        dirtyMaxY = -1;
+        return true;
     }
 
-    @Override
-    public void tickRare() {
-        synchronized (tickingBlocks) {
-            for (TickingBlock block : tickingBlocks) {
-                block.tryTick(true);
-            }
+    /**
+     * Might cause a call to {@link #updateTextureNow()} if the chunk is marked as dirty
+     *
+     * @return The texture of this chunk, {@code null} if it has not been rendered yet
+     *
+     * @see ChunkTextureCache#getRegion(Chunk)
+     */
+    @Nullable
+    public TextureRegion getTextureRegion() {
+        if (dirty) {
+            updateTextureNow();
         }
+        return Main.renderGraphic ? world.getRender().getChunkTextureCache().getRegion(this) : null;
+    }
+
+    public void view() {
+        lastViewedTick = world.getTick();
     }
 
     /**
-     * @return The backing array of the chunk, might contain null elements
+     * @return The backing storage of the chunk
      */
-    public Block[][] getBlocks() {
+    @NotNull
+    public PalettedBlockStorage getBlocks() {
         return blocks;
     }
 
+    /**
+     * Unlike {@link #getBlock(int, int)} no checks are done and air is not created
+     *
+     * @param localX
+     *     The local x ie a value between 0 and {@link #CHUNK_SIZE}
+     * @param localY
+     *     The local y ie a value between 0 and {@link #CHUNK_SIZE}
+     *
+     * @return The block at the given location, {@code null} if the block is air
+     */
     @Nullable
     public Block getRawBlock(int localX, int localY) {
-        return blocks[localX][localY];
+        Block block = getStatefulBlock(localX, localY);
+        if (block != null) {
+            return block;
+        }
+        Material material = blocks.get(localX, localY);
+        return material == AIR ? null : new Block(world, this, localX, localY, material);
     }
 
     /**
@@ -433,12 +572,49 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
     }
 
     /**
-     * @return If the chunk has been modified since creation
+     * @return If the chunk has been modified since creation or since it was last saved
      */
     public boolean isModified() {
         return modified;
     }
 
+    /**
+     * Take a snapshot of the blocks of this chunk if it has to be saved, and mark it as no longer modified. A chunk
+     * has to be saved if it has been modified, or if it has or had any block states or entities as they might have
+     * changed.
+     *
+     * @param hasState
+     *     If the chunk currently has any block states or entities to save
+     *
+     * @return A snapshot of the blocks in this chunk or {@code null} if it does not have to be saved
+     */
+    @Nullable
+    public synchronized PalettedBlockStorage.Snapshot snapshotIfModified(boolean hasState) {
+        if (!modified && !hasState && !savedState) {
+            return null;
+        }
+        modified = false;
+        savedState = hasState;
+        return blocks.snapshot();
+    }
+
+    /**
+     * Spawn the entities that was saved with this chunk, does nothing if they are already spawned
+     *
+     * @return Number of entities spawned
+     */
+    public int spawnSavedEntities() {
+        byte[] entities;
+        synchronized (this) {
+            entities = savedEntities;
+            savedEntities = null;
+            if (entities == null || !loaded) {
+                return 0;
+            }
+        }
+        return ChunkStateCodec.restoreEntities(world, entities);
+    }
+
     @NotNull
     @Override
     public Iterator<Block> iterator() {
@@ -470,16 +646,16 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
 
     @Override
     public synchronized void dispose() {
-        if (fbo != null) {
-            Main.inst().getScheduler().executeSync(fbo::dispose);
+        if (Main.renderGraphic) {
+            Main.inst().getScheduler().executeSync(() -> world.getRender().getChunkTextureCache().free(this));
         }
         loaded = false;
         allowUnload = false;
 
         chunkBody.dispose();
 
-        for (Block[] blocks : blocks) {
-            for (Block block : blocks) {
+        if (statefulBlocks != null) {
+            for (Block block : statefulBlocks) {
                 if (block != null) {
                     block.dispose();
                 }
@@ -487,21 +663,6 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
         }
     }
 
-    @Nullable
-    public FileHandle getChunkFile() {
-        if (chunkFile == null) {
-            chunkFile = getChunkFile(world, chunkX, chunkY);
-        }
-        return chunkFile;
-    }
-
-    @Nullable
-    public static FileHandle getChunkFile(@NotNull World world, int chunkX, int chunkY) {
-        FileHandle worldFile = world.worldFolder();
-        if (worldFile == null) { return null; }
-        return worldFile.child(CHUNK_FOLDER + File.separator + chunkX + File.separator + chunkY);
-    }
-
     @NotNull
     public ChunkBody getChunkBody() {
         return chunkBody;
@@ -528,65 +689,70 @@ public class Chunk implements Iterable<Block>, Ticking, Disposable, Binembly {
      * Allow textures to be loaded
      */
     public void finishLoading() {
-        synchronized (this) {
-            HashSet<TickingBlock> updateBlocks = new HashSet<>();
-            for (int x = 0; x < CHUNK_SIZE; x++) {
-                for (int y = 0; y < CHUNK_SIZE; y++) {
-                    Block block = blocks[x][y];
-                    if (block instanceof TickingBlock) {
-                        updateBlocks.add((TickingBlock) block);
-                    }
-                }
-            }
+        initializing = false;
+        wakeTickingBlocks();
+    }
 
-            synchronized (tickingBlocks) {
-                tickingBlocks.addAll(updateBlocks);
+    /**
+     * Wake the ticking blocks in this chunk that should tick when loaded
+     */
+    private void wakeTickingBlocks() {
+        Block[] statefulBlocks;
+        synchronized (this) {
+            statefulBlocks = this.statefulBlocks;
+        }
+        if (statefulBlocks == null) {
+            return;
+        }
+        for (Block block : statefulBlocks) {
+            if (block instanceof TickingBlock && ((TickingBlock) block).tickWhenLoaded()) {
+                ((TickingBlock) block).wake();
             }
         }
-        initializing = false;
     }
 
     @NotNull
     @Override
     public byte[] disassemble() {
-        byte[] bytes = new byte[CHUNK_SIZE * CHUNK_SIZE];
-        int index = 0;
         synchronized (this) {
-            for (Block block : this) {
-                bytes[index++] = block == null ? 0 : block.disassemble()[0];
-            }
+            byte[] state = ChunkStateCodec.encode(this, world.getEntitiesInChunk(chunkX, chunkY));
+            return ChunkCodec.encode(blocks::get, state);
         }
-        return bytes;
     }
 
     @Override
     public void assemble(@NotNull byte[] bytes) {
-        Preconditions.checkArgument(bytes.length == CHUNK_SIZE * CHUNK_SIZE,
-                                    "Invalid number of bytes. expected " + CHUNK_SIZE * CHUNK_SIZE + ", but got " +
-                                    bytes.length);
-        int index = 0;
+        assemble(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Same as {@link #assemble(byte[])} but reads directly from the given buffer, starting at its position. The
+     * entities saved with the chunk are not spawned until {@link #spawnSavedEntities()} is called
+     */
+    public void assemble(@NotNull ByteBuffer buffer) {
         synchronized (this) {
-            HashSet<TickingBlock> updateBlocks = new HashSet<>();
-            for (int y = 0; y < CHUNK_SIZE; y++) {
-                for (int x = 0; x < CHUNK_SIZE; x++) {
-                    Material mat = Material.fromByte(bytes[index++]);
-                    if (mat == null || mat == AIR) {
-                        blocks[x][y] = null;
-                        continue;
-                    }
-                    Block block = mat.createBlock(world, this, x, y);
-                    if (block instanceof TickingBlock) {
-                        updateBlocks.add((TickingBlock) block);
-                    }
-                    blocks[x][y] = block;
+            ByteBuffer state = ChunkCodec.decode(buffer, blocks);
+            for (int index = 0; index < PalettedBlockStorage.SIZE; index++) {
+                Material mat = blocks.get(index);
+                if (!mat.isStateful()) {
+                    continue;
+                }
+                if (statefulBlocks == null) {
+                    statefulBlocks = new Block[PalettedBlockStorage.SIZE];
+                }
+                Block block = mat.createBlock(world, this, index % CHUNK_SIZE, index / CHUNK_SIZE);
+                statefulBlocks[index] = block;
+                if (block.hasOverlay()) {
+                    addOverlayBlock(block);
                 }
             }
-            synchronized (tickingBlocks) {
-                tickingBlocks.addAll(updateBlocks);
+            if (state != null) {
+                savedState = true;
+                savedEntities = ChunkStateCodec.restoreBlocks(this, state);
             }
-
         }
         initializing = false;
+        wakeTickingBlocks();
     }
 
     @Override
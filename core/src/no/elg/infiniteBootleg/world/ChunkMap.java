@@ -0,0 +1,286 @@
+package no.elg.infiniteBootleg.world;
+
+import no.elg.infiniteBootleg.util.CoordUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent open-addressing map from chunk coordinates to chunks.
+ * <p>
+ * Chunk coordinates are packed into a single {@code long} (see {@link CoordUtil#compactLoc(int, int)}) so looking up a
+ * chunk does not allocate. Reads are lock-free while writes are synchronized on the map. Iteration is weakly
+ * consistent, it will never throw a {@link java.util.ConcurrentModificationException}
+ *
+ * @author Elg
+ */
+public class ChunkMap {
+
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Maximum ratio of used (live and removed) slots before the table is rehashed
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private static final class Entry {
+
+        private final long key;
+        private final Chunk chunk;
+
+        private Entry(long key, Chunk chunk) {
+            this.key = key;
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * Marks a slot whose entry has been removed, lookups must probe past it
+     */
+    private static final Entry REMOVED = new Entry(0, null);
+
+    private volatile AtomicReferenceArray<Entry> table;
+    private volatile int size;
+    private int removed;
+
+    private final Collection<Chunk> values = new Values();
+
+    public ChunkMap() {
+        table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @param chunkX
+     *     Chunk x coordinate
+     * @param chunkY
+     *     Chunk y coordinate
+     *
+     * @return The chunk at the given location or {@code null} if there is no such chunk
+     */
+    @Nullable
+    public Chunk get(int chunkX, int chunkY) {
+        return get(CoordUtil.compactLoc(chunkX, chunkY));
+    }
+
+    /**
+     * @param key
+     *     The compact chunk location
+     *
+     * @return The chunk at the given location or {@code null} if there is no such chunk
+     */
+    @Nullable
+    public Chunk get(long key) {
+        AtomicReferenceArray<Entry> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Entry entry = table.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry != REMOVED && entry.key == key) {
+                return entry.chunk;
+            }
+        }
+    }
+
+    /**
+     * @return If there is a chunk at the given location
+     */
+    public boolean containsKey(int chunkX, int chunkY) {
+        return get(chunkX, chunkY) != null;
+    }
+
+    /**
+     * @param chunkX
+     *     Chunk x coordinate
+     * @param chunkY
+     *     Chunk y coordinate
+     * @param chunk
+     *     The chunk to put at the given location
+     *
+     * @return The chunk previously at the given location
+     */
+    @Nullable
+    public synchronized Chunk put(int chunkX, int chunkY, @NotNull Chunk chunk) {
+        long key = CoordUtil.compactLoc(chunkX, chunkY);
+        AtomicReferenceArray<Entry> table = this.table;
+        int mask = table.length() - 1;
+        int firstRemoved = -1;
+        int i = hash(key) & mask;
+        for (; ; i = (i + 1) & mask) {
+            Entry entry = table.get(i);
+            if (entry == null) {
+                break;
+            }
+            if (entry == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = i;
+                }
+            }
+            else if (entry.key == key) {
+                table.set(i, new Entry(key, chunk));
+                return entry.chunk;
+            }
+        }
+        if (firstRemoved >= 0) {
+            table.set(firstRemoved, new Entry(key, chunk));
+            removed--;
+        }
+        else {
+            table.set(i, new Entry(key, chunk));
+        }
+        size++;
+        if (size + removed > table.length() * LOAD_FACTOR) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * @return The removed chunk or {@code null} if there was no chunk at the given location
+     */
+    @Nullable
+    public Chunk remove(int chunkX, int chunkY) {
+        return remove(CoordUtil.compactLoc(chunkX, chunkY), null);
+    }
+
+    /**
+     * @param key
+     *     The compact chunk location
+     * @param expected
+     *     Only remove the chunk at the given location if it is this chunk, if {@code null} any chunk is removed
+     *
+     * @return The removed chunk or {@code null} if nothing was removed
+     */
+    @Nullable
+    private synchronized Chunk remove(long key, @Nullable Chunk expected) {
+        AtomicReferenceArray<Entry> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Entry entry = table.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry != REMOVED && entry.key == key) {
+                if (expected != null && entry.chunk != expected) {
+                    return null;
+                }
+                table.set(i, REMOVED);
+                size--;
+                removed++;
+                return entry.chunk;
+            }
+        }
+    }
+
+    /**
+     * Copy all live entries into a new table, growing it if needed
+     */
+    private void rehash() {
+        AtomicReferenceArray<Entry> old = table;
+        int capacity = old.length();
+        while (size > capacity * LOAD_FACTOR / 2) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.length(); j++) {
+            Entry entry = old.get(j);
+            if (entry == null || entry == REMOVED) {
+                continue;
+            }
+            int i = hash(entry.key) & mask;
+            while (table.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            table.set(i, entry);
+        }
+        removed = 0;
+        this.table = table;
+    }
+
+    /**
+     * @return Number of chunks in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A view of the chunks in this map, removing from it removes the chunk from this map
+     */
+    @NotNull
+    public Collection<Chunk> values() {
+        return values;
+    }
+
+    private final class Values extends AbstractCollection<Chunk> {
+
+        @NotNull
+        @Override
+        public Iterator<Chunk> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private final class ValueIterator implements Iterator<Chunk> {
+
+        private final AtomicReferenceArray<Entry> table = ChunkMap.this.table;
+        private int index;
+        private Entry next;
+        private Entry last;
+
+        private ValueIterator() {
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (index < table.length()) {
+                Entry entry = table.get(index++);
+                if (entry != null && entry != REMOVED) {
+                    next = entry;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Chunk next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last.chunk;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ChunkMap.this.remove(last.key, last.chunk);
+            last = null;
+        }
+    }
+}
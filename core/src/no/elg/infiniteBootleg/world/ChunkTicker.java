@@ -0,0 +1,147 @@
+package no.elg.infiniteBootleg.world;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.world.blocks.TickingBlock;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tick the blocks due this tick, either serially on the calling thread or in parallel when {@link
+ * Main#parallelChunkTicking} is enabled.
+ * <p>
+ * When ticking in parallel the blocks are grouped by chunk and the chunks are coloured in a repeating 3x3 pattern with
+ * {@link #COLORS} colours, so two chunks of the same colour are always at least three chunks apart and never share a
+ * neighbouring chunk, not even diagonally. The colours are ticked one after another and the chunks of a colour are
+ * ticked in parallel, the blocks of a single chunk are always ticked by the same thread. As a ticking block only changes
+ * blocks in its own chunk or the neighbouring chunks (see {@link World#updateBlocksAround(int, int)}) chunks ticked at
+ * the same time never write to the same chunk.
+ *
+ * @author Elg
+ */
+public class ChunkTicker implements Disposable {
+
+    /**
+     * Width and height, in chunks, of the repeating colour pattern
+     */
+    public static final int PATTERN_SIZE = 3;
+    /**
+     * Number of colours, a chunk's colour is given by its position within the pattern
+     */
+    public static final int COLORS = PATTERN_SIZE * PATTERN_SIZE;
+    /**
+     * Blocks due needed before ticking in parallel, fewer than this is faster to tick serially
+     */
+    public static final int PARALLEL_THRESHOLD = 64;
+    /**
+     * Maximum number of chunks ticked by a single task
+     */
+    private static final int CHUNKS_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+
+    public ChunkTicker() {
+        pool = Main.parallelChunkTicking ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : null;
+    }
+
+    /**
+     * @param chunkX
+     *     The x coordinate of the chunk
+     * @param chunkY
+     *     The y coordinate of the chunk
+     *
+     * @return The colour of the chunk at the given coordinates, between 0 (inclusive) and {@link #COLORS} (exclusive)
+     */
+    static int colorOf(int chunkX, int chunkY) {
+        return Math.floorMod(chunkX, PATTERN_SIZE) + PATTERN_SIZE * Math.floorMod(chunkY, PATTERN_SIZE);
+    }
+
+    /**
+     * Tick the given blocks, must be called from the ticker thread
+     *
+     * @param due
+     *     The blocks to tick
+     *
+     * @see BlockTickScheduler#pollDue(long)
+     */
+    @SuppressWarnings("unchecked")
+    public void tick(@NotNull Array<TickingBlock> due) {
+        if (pool == null || due.size < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < due.size; i++) {
+                due.get(i).tick();
+            }
+            return;
+        }
+
+        ObjectMap<Chunk, Array<TickingBlock>> byChunk = new ObjectMap<>();
+        for (int i = 0; i < due.size; i++) {
+            TickingBlock block = due.get(i);
+            Array<TickingBlock> blocks = byChunk.get(block.getChunk());
+            if (blocks == null) {
+                blocks = new Array<>(false, 8);
+                byChunk.put(block.getChunk(), blocks);
+            }
+            blocks.add(block);
+        }
+        Array<Array<TickingBlock>>[] colors = new Array[COLORS];
+        for (int i = 0; i < COLORS; i++) {
+            colors[i] = new Array<>(false, byChunk.size);
+        }
+        for (ObjectMap.Entry<Chunk, Array<TickingBlock>> entry : byChunk) {
+            colors[colorOf(entry.key.getChunkX(), entry.key.getChunkY())].add(entry.value);
+        }
+        for (Array<Array<TickingBlock>> color : colors) {
+            if (color.notEmpty()) {
+                pool.invoke(new TickTask(color, 0, color.size));
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (pool != null) {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Tick the chunks in {@code [from, to)}, splitting the range until it is small enough
+     */
+    private static final class TickTask extends RecursiveAction {
+
+        private final Array<Array<TickingBlock>> chunks;
+        private final int from;
+        private final int to;
+
+        private TickTask(@NotNull Array<Array<TickingBlock>> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNKS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    Array<TickingBlock> blocks = chunks.get(i);
+                    for (int j = 0; j < blocks.size; j++) {
+                        blocks.get(j).tick();
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TickTask(chunks, from, mid), new TickTask(chunks, mid, to));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package no.elg.infiniteBootleg.world;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import no.elg.infiniteBootleg.util.CoordUtil;
+import no.elg.infiniteBootleg.world.subgrid.Entity;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A spatial index of the entities in a world. Entities are bucketed by the chunk their position is in, so queries only
+ * have to look at the entities in the chunks around the queried area instead of every entity in the world.
+ * <p>
+ * The index is updated by the entities themselves when they move, see {@link Entity#tick()}. Adding, moving and removing
+ * an entity are done while computing its entry in {@code keys}, so the operations on a single entity are atomic with
+ * respect to each other and it is never left in a bucket after being removed.
+ *
+ * @author Elg
+ */
+public class EntityIndex {
+
+    private final ConcurrentMap<Long, Set<Entity>> buckets;
+    /**
+     * The bucket each entity is currently in
+     */
+    private final ConcurrentMap<Entity, Long> keys;
+
+    /**
+     * The largest half width and height of any entity added, queries are widened by these to include entities whose
+     * position is outside the queried area but overlaps it
+     */
+    private volatile float maxHalfWidth;
+    private volatile float maxHalfHeight;
+
+    public EntityIndex() {
+        buckets = new ConcurrentHashMap<>();
+        keys = new ConcurrentHashMap<>();
+    }
+
+    private static long keyOf(@NotNull Entity entity) {
+        return CoordUtil.compactLoc(CoordUtil.worldToChunk(entity.getBlockX()),
+                                    CoordUtil.worldToChunk(entity.getBlockY()));
+    }
+
+    /**
+     * @param entity
+     *     The entity to start tracking
+     */
+    public void add(@NotNull Entity entity) {
+        maxHalfWidth = Math.max(maxHalfWidth, entity.getHalfBox2dWidth());
+        maxHalfHeight = Math.max(maxHalfHeight, entity.getHalfBox2dHeight());
+        keys.compute(entity, (e, oldKey) -> {
+            if (oldKey != null) {
+                removeFromBucket(oldKey, e);
+            }
+            long key = keyOf(e);
+            addToBucket(key, e);
+            return key;
+        });
+    }
+
+    /**
+     * @param entity
+     *     The entity to stop tracking
+     */
+    public void remove(@NotNull Entity entity) {
+        keys.computeIfPresent(entity, (e, key) -> {
+            removeFromBucket(key, e);
+            return null;
+        });
+    }
+
+    /**
+     * Move the given entity to the bucket of its current position, does nothing if it is not tracked or has not
+     * changed chunk
+     *
+     * @param entity
+     *     The entity that might have moved
+     */
+    public void update(@NotNull Entity entity) {
+        Long currentKey = keys.get(entity);
+        if (currentKey == null || currentKey == keyOf(entity)) {
+            //fast path, most entities do not change chunk
+            return;
+        }
+        keys.computeIfPresent(entity, (e, oldKey) -> {
+            long newKey = keyOf(e);
+            if (oldKey != newKey) {
+                addToBucket(newKey, e);
+                removeFromBucket(oldKey, e);
+            }
+            return newKey;
+        });
+    }
+
+    private void addToBucket(long key, @NotNull Entity entity) {
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = ConcurrentHashMap.newKeySet();
+            }
+            bucket.add(entity);
+            return bucket;
+        });
+    }
+
+    private void removeFromBucket(long key, @NotNull Entity entity) {
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(entity);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    /**
+     * @param chunkX
+     *     The x coordinate of the chunk
+     * @param chunkY
+     *     The y coordinate of the chunk
+     *
+     * @return All entities whose position is within the given chunk
+     */
+    @NotNull
+    public Array<Entity> getEntitiesInChunk(int chunkX, int chunkY) {
+        Array<Entity> entities = new Array<>(false, 8);
+        Set<Entity> bucket = buckets.get(CoordUtil.compactLoc(chunkX, chunkY));
+        if (bucket != null) {
+            for (Entity entity : bucket) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Find all entities whose bounding box overlaps the given area, both edges inclusive
+     *
+     * @param minX
+     *     Left edge of the area in world coordinates
+     * @param minY
+     *     Bottom edge of the area in world coordinates
+     * @param maxX
+     *     Right edge of the area in world coordinates
+     * @param maxY
+     *     Top edge of the area in world coordinates
+     *
+     * @return All entities overlapping the given area
+     */
+    @NotNull
+    public Array<Entity> query(float minX, float minY, float maxX, float maxY) {
+        Array<Entity> entities = new Array<>(false, 5);
+        int minChunkX = CoordUtil.worldToChunk(MathUtils.floor(minX - maxHalfWidth));
+        int minChunkY = CoordUtil.worldToChunk(MathUtils.floor(minY - maxHalfHeight));
+        int maxChunkX = CoordUtil.worldToChunk(MathUtils.floor(maxX + maxHalfWidth));
+        int maxChunkY = CoordUtil.worldToChunk(MathUtils.floor(maxY + maxHalfHeight));
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+                Set<Entity> bucket = buckets.get(CoordUtil.compactLoc(chunkX, chunkY));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entity entity : bucket) {
+                    Vector2 pos = entity.getPosition();
+                    float halfWidth = entity.getHalfBox2dWidth();
+                    float halfHeight = entity.getHalfBox2dHeight();
+                    if (pos.x + halfWidth >= minX && pos.x - halfWidth <= maxX && //
+                        pos.y + halfHeight >= minY && pos.y - halfHeight <= maxY) {
+                        entities.add(entity);
+                    }
+                }
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * @return Number of non-empty buckets
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+}
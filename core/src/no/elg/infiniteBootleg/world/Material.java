@@ -4,7 +4,6 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.google.common.base.Preconditions;
 import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.items.ItemType;
-import no.elg.infiniteBootleg.util.Util;
 import no.elg.infiniteBootleg.world.blocks.SandBlock;
 import no.elg.infiniteBootleg.world.blocks.TntBlock;
 import no.elg.infiniteBootleg.world.blocks.Torch;
@@ -13,26 +12,44 @@ import no.elg.infiniteBootleg.world.subgrid.enitites.Door;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-
 /**
  * @author Elg
  */
 public enum Material {
 
-    AIR(null, ItemType.AIR, false, false, false, 0f),
+    AIR(ItemType.AIR, false, false, false, 0f),
     STONE(1.5f),
     BRICK(2f),
     DIRT(1f),
     GRASS(0.8f),
-    TNT(TntBlock.class, 0.5f),
-    SAND(SandBlock.class, 1f),
-    TORCH(Torch.class, ItemType.BLOCK, false, false, true, 0.1f),
-    GLASS(null, ItemType.BLOCK, true, false, true, 0.1f),
-    DOOR(Door.class, ItemType.ENTITY, true, true, true, 1f);
+    TNT(TntBlock::new, 0.5f),
+    SAND(SandBlock::new, 1f),
+    TORCH(Torch::new, ItemType.BLOCK, false, false, true, 0.1f),
+    GLASS(ItemType.BLOCK, true, false, true, 0.1f),
+    DOOR(Door::new, ItemType.ENTITY, true, true, true, 1f);
+
+    /**
+     * Creates the custom block implementation of a material
+     */
+    @FunctionalInterface
+    public interface BlockFactory {
+
+        @NotNull
+        Block create(@NotNull World world, @NotNull Chunk chunk, int localX, int localY, @NotNull Material material);
+    }
+
+    /**
+     * Creates the entity of a material
+     */
+    @FunctionalInterface
+    public interface EntityFactory {
+
+        @NotNull
+        MaterialEntity create(@NotNull World world, float worldX, float worldY);
+    }
 
-    private final Constructor<?> constructor;
+    private final BlockFactory blockFactory;
+    private final EntityFactory entityFactory;
     private final boolean solid;
     private final boolean blocksLight;
     private final boolean placable;
@@ -41,16 +58,32 @@ public enum Material {
     private ItemType itemType;
 
     Material(float hardness) {
-        this(null, hardness);
+        this(ItemType.BLOCK, true, true, true, hardness);
+    }
+
+    Material(@NotNull BlockFactory blockFactory, float hardness) {
+        this(blockFactory, ItemType.BLOCK, true, true, true, hardness);
+    }
+
+    Material(ItemType itemType, boolean solid, boolean blocksLight, boolean placable, float hardness) {
+        this(null, null, itemType, solid, blocksLight, placable, hardness);
     }
 
-    Material(@Nullable Class<?> impl, float hardness) {
-        this(impl, ItemType.BLOCK, true, true, true, hardness);
+    Material(@NotNull BlockFactory blockFactory, ItemType itemType, boolean solid, boolean blocksLight,
+             boolean placable, float hardness) {
+        this(blockFactory, null, itemType, solid, blocksLight, placable, hardness);
+    }
+
+    Material(@NotNull EntityFactory entityFactory, ItemType itemType, boolean solid, boolean blocksLight,
+             boolean placable, float hardness) {
+        this(null, entityFactory, itemType, solid, blocksLight, placable, hardness);
     }
 
     /**
-     * @param impl
-     *     The implementation a block of this material must have
+     * @param blockFactory
+     *     Creates the implementation a block of this material must have
+     * @param entityFactory
+     *     Creates the entity of this material
      * @param itemType
      * @param solid
      *     If objects can pass through this material
@@ -60,41 +93,15 @@ public enum Material {
      *     If a block of this material can be placed by a player
      * @param hardness
      */
-    Material(@Nullable Class<?> impl, ItemType itemType, boolean solid, boolean blocksLight, boolean placable,
-             float hardness) {
+    Material(@Nullable BlockFactory blockFactory, @Nullable EntityFactory entityFactory, ItemType itemType,
+             boolean solid, boolean blocksLight, boolean placable, float hardness) {
         this.itemType = itemType;
-        if (impl != null) {
-            if (itemType == ItemType.BLOCK) {
-                Preconditions.checkArgument(Util.hasSuperClass(impl, Block.class),
-                                            name() + " does not have " + Block.class.getSimpleName() +
-                                            " as a super class");
-                try {
-                    constructor = impl.getDeclaredConstructor(World.class, Chunk.class, int.class, int.class,
-                                                              Material.class);
-
-                } catch (NoSuchMethodException e) {
-                    throw new IllegalStateException("There is no constructor of " + impl.getSimpleName() +
-                                                    " with the arguments World, Chunk, int, int, Material");
-                }
-            }
-            else if (itemType == ItemType.ENTITY) {
-                Preconditions.checkArgument(Util.hasSuperClass(impl, MaterialEntity.class),
-                                            name() + " does not have " + MaterialEntity.class.getSimpleName() +
-                                            " as a super class");
-                try {
-                    constructor = impl.getConstructor(World.class, float.class, float.class);
-                } catch (NoSuchMethodException e) {
-                    throw new IllegalStateException("There is no constructor of " + impl.getSimpleName() +
-                                                    " with the arguments World, float, float");
-                }
-            }
-            else {
-                constructor = null;
-            }
-        }
-        else {
-            constructor = null;
-        }
+        Preconditions.checkArgument(blockFactory == null || itemType == ItemType.BLOCK,
+                                    name() + " has a block factory but is not a block");
+        Preconditions.checkArgument((entityFactory != null) == (itemType == ItemType.ENTITY),
+                                    name() + " must have an entity factory if and only if it is an entity");
+        this.blockFactory = blockFactory;
+        this.entityFactory = entityFactory;
         this.solid = solid;
         this.blocksLight = blocksLight;
         this.placable = placable;
@@ -118,31 +125,22 @@ public enum Material {
      * @param localY
      *     Relative y in the chunk
      *
-     * @return A block of this type
+     * @return A block of this type, if this material is not {@link #isStateful() stateful} the returned block is only
+     * a view of the given location
      */
     @NotNull
     public Block createBlock(@NotNull World world, @NotNull Chunk chunk, int localX, int localY) {
         Preconditions.checkArgument(isBlock());
-        if (constructor == null) {
+        if (blockFactory == null) {
             return new Block(world, chunk, localX, localY, this);
         }
-        try {
-            return (Block) constructor.newInstance(world, chunk, localX, localY, this);
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            throw new IllegalStateException(e);
-        }
+        return blockFactory.create(world, chunk, localX, localY, this);
     }
 
     @NotNull
     public MaterialEntity createEntity(@NotNull World world, float worldX, float worldY) {
         Preconditions.checkArgument(itemType == ItemType.ENTITY);
-        try {
-            return (MaterialEntity) constructor.newInstance(world, worldX, worldY);
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            throw new IllegalStateException(String.format(
-                "Failed to create entity of the type %s at world %s (%.2f,%.2f)", this, world.toString(), worldX,
-                worldY), e);
-        }
+        return entityFactory.create(world, worldX, worldY);
     }
 
     @NotNull
@@ -156,6 +154,20 @@ public enum Material {
         throw new IllegalStateException("This material (" + name() + ") is neither a block nor an entity");
     }
 
+    /**
+     * Same as {@link #create(World, int, int)} but looks up the chunk through the given cursor
+     */
+    @NotNull
+    public Object create(@NotNull WorldCursor cursor, int worldX, int worldY) {
+        if (isBlock()) {
+            return cursor.setBlock(worldX, worldY, this, true);
+        }
+        if (itemType == ItemType.ENTITY) {
+            return createEntity(cursor.getWorld(), worldX, worldY);
+        }
+        throw new IllegalStateException("This material (" + name() + ") is neither a block nor an entity");
+    }
+
     public boolean isBlock() {
         return itemType == ItemType.BLOCK || itemType == ItemType.AIR;
     }
@@ -164,6 +176,17 @@ public enum Material {
         return itemType == ItemType.ENTITY;
     }
 
+    /**
+     * Blocks of a stateful material (such as {@link TntBlock}, {@link SandBlock} and {@link Torch}) must be
+     * materialized as separate objects, while blocks of stateless materials only exist as an entry in their chunk's
+     * {@link PalettedBlockStorage}
+     *
+     * @return If a block of this material has a custom implementation with its own state
+     */
+    public boolean isStateful() {
+        return blockFactory != null;
+    }
+
     @Nullable
     public TextureRegion getTextureRegion() {
         return texture;
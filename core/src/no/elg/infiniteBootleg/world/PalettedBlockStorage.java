@@ -0,0 +1,313 @@
+package no.elg.infiniteBootleg.world;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+import static no.elg.infiniteBootleg.world.Chunk.CHUNK_SIZE;
+import static no.elg.infiniteBootleg.world.Material.AIR;
+
+/**
+ * Compact storage of the materials within a single chunk.
+ * <p>
+ * Each chunk has a small palette of the materials it contains and a bit-packed array of indices into that palette. The
+ * number of bits per index grows (1, 2, 4 then 8 bits) as more distinct materials are added to the chunk. A chunk
+ * consisting only of air has no index array at all.
+ * <p>
+ * Reading is thread safe, writing must be synchronized externally (ie by the owning {@link Chunk}). The palette of a
+ * published layout is never modified, any change to the palette publishes a new layout so a lock-free reader never
+ * sees a palette index without its material.
+ * <p>
+ * A {@link Snapshot} of the storage is cheap to take as it shares the current palette and index array with this
+ * storage, they are only copied when this storage is written to after the snapshot was taken.
+ *
+ * @author Elg
+ */
+public class PalettedBlockStorage {
+
+    /**
+     * Number of blocks in a chunk
+     */
+    public static final int SIZE = CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * The palette and index array, replaced as a whole when the palette changes
+     */
+    private static final class Layout {
+
+        private final Material[] palette;
+        private final int bits;
+        private final long mask;
+        private final long[] data;
+        private final int size;
+        /**
+         * If a snapshot uses this layout, it must then be copied before it is modified
+         */
+        private volatile boolean shared;
+
+        private Layout(int bits, @NotNull Material[] palette, int size) {
+            this(bits, palette, size, new long[SIZE * bits / Long.SIZE]);
+        }
+
+        private Layout(int bits, @NotNull Material[] palette, int size, @NotNull long[] data) {
+            this.bits = bits;
+            this.size = size;
+            this.palette = palette;
+            this.data = data;
+            mask = (1L << bits) - 1;
+        }
+
+        @NotNull
+        private Layout copy() {
+            return new Layout(bits, palette.clone(), size, data.clone());
+        }
+
+        @NotNull
+        private Material get(int index) {
+            if (bits == 0) {
+                return palette[0];
+            }
+            int bitIndex = index * bits;
+            int paletteIndex = (int) ((data[bitIndex >>> 6] >>> (bitIndex & 63)) & mask);
+            return palette[paletteIndex];
+        }
+    }
+
+    /**
+     * An immutable copy of a storage at the time it was taken
+     */
+    public static final class Snapshot {
+
+        private final Layout layout;
+
+        private Snapshot(@NotNull Layout layout) {
+            this.layout = layout;
+        }
+
+        /**
+         * @param index
+         *     The index of the block, as given by {@link #index(int, int)}
+         *
+         * @return The material at the given index when this snapshot was taken
+         */
+        @NotNull
+        public Material get(int index) {
+            return layout.get(index);
+        }
+
+        /**
+         * @return The ordinal of each material in index order
+         */
+        @NotNull
+        public byte[] toBytes() {
+            byte[] bytes = new byte[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                bytes[i] = (byte) layout.get(i).ordinal();
+            }
+            return bytes;
+        }
+    }
+
+    private volatile Layout layout;
+    private int nonAirBlocks;
+
+    public PalettedBlockStorage() {
+        layout = new Layout(0, new Material[] {AIR}, 1);
+    }
+
+    /**
+     * @param localX
+     *     The local x ie a value between 0 and {@link Chunk#CHUNK_SIZE}
+     * @param localY
+     *     The local y ie a value between 0 and {@link Chunk#CHUNK_SIZE}
+     *
+     * @return The index of the given local coordinates
+     */
+    public static int index(int localX, int localY) {
+        return localX + localY * CHUNK_SIZE;
+    }
+
+    /**
+     * @param localX
+     *     The local x ie a value between 0 and {@link Chunk#CHUNK_SIZE}
+     * @param localY
+     *     The local y ie a value between 0 and {@link Chunk#CHUNK_SIZE}
+     *
+     * @return The material at the given location
+     */
+    @NotNull
+    public Material get(int localX, int localY) {
+        return get(index(localX, localY));
+    }
+
+    /**
+     * @param index
+     *     The index of the block, as given by {@link #index(int, int)}
+     *
+     * @return The material at the given index
+     */
+    @NotNull
+    public Material get(int index) {
+        return layout.get(index);
+    }
+
+    /**
+     * @param index
+     *     The index of the block, as given by {@link #index(int, int)}
+     * @param material
+     *     The new material at the given index
+     *
+     * @return The material previously at the given index
+     */
+    @NotNull
+    public Material set(int index, @NotNull Material material) {
+        Material old = get(index);
+        if (old == material) {
+            return old;
+        }
+        Layout layout = this.layout;
+        int paletteIndex = paletteIndex(layout, material);
+        if (paletteIndex < 0) {
+            //a grown layout is never shared
+            layout = grow(layout, material);
+            paletteIndex = layout.size - 1;
+        }
+        else if (layout.shared) {
+            layout = this.layout = layout.copy();
+        }
+        int bitIndex = index * layout.bits;
+        int shift = bitIndex & 63;
+        long[] data = layout.data;
+        data[bitIndex >>> 6] = (data[bitIndex >>> 6] & ~(layout.mask << shift)) | ((long) paletteIndex << shift);
+
+        if (old == AIR) { nonAirBlocks++; }
+        else if (material == AIR) { nonAirBlocks--; }
+        return old;
+    }
+
+    private static int paletteIndex(@NotNull Layout layout, @NotNull Material material) {
+        for (int i = 0; i < layout.size; i++) {
+            if (layout.palette[i] == material) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Publish a new layout with the given material added to the palette, widening the index array if the palette is
+     * full
+     *
+     * @return The layout with the given material as the last palette entry
+     */
+    @NotNull
+    private Layout grow(@NotNull Layout old, @NotNull Material material) {
+        if (old.size < old.palette.length) {
+            Material[] palette = old.palette.clone();
+            palette[old.size] = material;
+            Layout layout = new Layout(old.bits, palette, old.size + 1, old.data.clone());
+            this.layout = layout;
+            return layout;
+        }
+        int bits = old.bits == 0 ? 1 : old.bits * 2;
+        Preconditions.checkState(bits <= Byte.SIZE, "Too many distinct materials in a single chunk");
+
+        Material[] palette = new Material[1 << bits];
+        System.arraycopy(old.palette, 0, palette, 0, old.size);
+        palette[old.size] = material;
+        Layout layout = new Layout(bits, palette, old.size + 1);
+
+        if (old.bits > 0) {
+            for (int i = 0; i < SIZE; i++) {
+                int oldBitIndex = i * old.bits;
+                long paletteIndex = (old.data[oldBitIndex >>> 6] >>> (oldBitIndex & 63)) & old.mask;
+                int bitIndex = i * bits;
+                layout.data[bitIndex >>> 6] |= paletteIndex << (bitIndex & 63);
+            }
+        }
+        this.layout = layout;
+        return layout;
+    }
+
+    /**
+     * @return If every block in this storage is {@link Material#AIR}
+     */
+    public boolean isAllAir() {
+        return nonAirBlocks == 0;
+    }
+
+    /**
+     * @return How many distinct materials this storage has seen since it was last cleared
+     */
+    public int getPaletteSize() {
+        return layout.size;
+    }
+
+    /**
+     * @return Number of bits used to store the palette index of each block
+     */
+    public int getBitsPerBlock() {
+        return layout.bits;
+    }
+
+    /**
+     * Set every block to {@link Material#AIR} and reset the palette
+     */
+    public void clear() {
+        layout = new Layout(0, new Material[] {AIR}, 1);
+        nonAirBlocks = 0;
+    }
+
+    /**
+     * Must be synchronized with writes in the same way as {@link #set(int, Material)}
+     *
+     * @return An immutable snapshot of the current content of this storage
+     */
+    @NotNull
+    public Snapshot snapshot() {
+        Layout layout = this.layout;
+        layout.shared = true;
+        return new Snapshot(layout);
+    }
+
+    /**
+     * @return The ordinal of each material in index order
+     */
+    @NotNull
+    public byte[] toBytes() {
+        byte[] bytes = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            bytes[i] = (byte) get(i).ordinal();
+        }
+        return bytes;
+    }
+
+    /**
+     * Replace the content of this storage with the given material ordinals
+     *
+     * @param bytes
+     *     The ordinal of each material in index order
+     */
+    public void fromBytes(@NotNull byte[] bytes) {
+        Preconditions.checkArgument(bytes.length == SIZE,
+                                    "Invalid number of bytes. expected " + SIZE + ", but got " + bytes.length);
+        fromBytes(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Replace the content of this storage with the next {@link #SIZE} material ordinals of the given buffer
+     *
+     * @param buffer
+     *     The ordinal of each material in index order, starting at the buffer's position
+     */
+    public void fromBytes(@NotNull ByteBuffer buffer) {
+        Preconditions.checkArgument(buffer.remaining() >= SIZE,
+                                    "Invalid number of bytes. expected " + SIZE + ", but got " + buffer.remaining());
+        clear();
+        for (int i = 0; i < SIZE; i++) {
+            Material mat = Material.fromByte(buffer.get());
+            set(i, mat == null ? AIR : mat);
+        }
+    }
+}
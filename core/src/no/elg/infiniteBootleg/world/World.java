@@ -8,6 +8,7 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Filter;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.LongArray;
 import com.badlogic.gdx.utils.ObjectSet;
 import com.google.common.base.Preconditions;
 import no.elg.infiniteBootleg.Main;
@@ -18,9 +19,11 @@ import no.elg.infiniteBootleg.world.blocks.TickingBlock;
 import no.elg.infiniteBootleg.world.box2d.WorldBody;
 import no.elg.infiniteBootleg.world.generator.ChunkGenerator;
 import no.elg.infiniteBootleg.world.loader.ChunkLoader;
+import no.elg.infiniteBootleg.world.loader.RegionMigrator;
 import no.elg.infiniteBootleg.world.render.HeadlessWorldRenderer;
 import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
+import no.elg.infiniteBootleg.world.subgrid.EntityType;
 import no.elg.infiniteBootleg.world.subgrid.LivingEntity;
 import no.elg.infiniteBootleg.world.subgrid.MaterialEntity;
 import no.elg.infiniteBootleg.world.subgrid.Removable;
@@ -31,8 +34,12 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Different kind of views
@@ -91,15 +98,34 @@ public class World implements Disposable, Ticking, Resizable {
         SOLID_TRANSPARENT_FILTER.maskBits = ENTITY_CATEGORY | GROUND_CATEGORY;
     }
 
+    /**
+     * The phases of {@link #tick()}, in order
+     */
+    public enum TickPhase {
+        SAVE,
+        BOX2D,
+        SKY,
+        UNLOAD,
+        BLOCKS,
+        ENTITIES
+    }
+
     public static boolean dayTicking = true;
 
     private final UUID uuid;
     private final long seed;
-    private final ConcurrentMap<Location, Chunk> chunks;
+    private final ChunkMap chunks;
+    /**
+     * Chunks currently being loaded, used to make sure each chunk is only loaded once
+     */
+    private final ConcurrentMap<Long, CompletableFuture<Chunk>> loadingChunks;
 
     private final Ticker ticker;
 
     private final ChunkLoader chunkLoader;
+    private final ChunkTicker chunkTicker;
+    private final BlockTickScheduler blockTickScheduler;
+    private final Profiler<TickPhase> tickProfiler;
     private FileHandle worldFile;
 
     private final long chunkUnloadTime;
@@ -114,6 +140,7 @@ public class World implements Disposable, Ticking, Resizable {
 
     private final Set<Entity> entities; //all entities in this world (including living entities)
     private final Set<LivingEntity> livingEntities; //all player in this world
+    private final EntityIndex entityIndex;
 
     private String name;
     private float time;
@@ -144,11 +171,16 @@ public class World implements Disposable, Ticking, Resizable {
 
         ticker = new Ticker(this, "World", tick, Main.tps, Ticker.DEFAULT_NAG_DELAY);
 
-        chunks = new ConcurrentHashMap<>();
+        chunks = new ChunkMap();
+        loadingChunks = new ConcurrentHashMap<>();
         entities = ConcurrentHashMap.newKeySet();
         livingEntities = ConcurrentHashMap.newKeySet();
+        entityIndex = new EntityIndex();
 
         chunkLoader = new ChunkLoader(this, generator);
+        chunkTicker = new ChunkTicker();
+        blockTickScheduler = new BlockTickScheduler(this);
+        tickProfiler = new Profiler<>("World tick", TickPhase.class);
         worldBody = new WorldBody(this);
 
         if (Main.renderGraphic) {
@@ -175,24 +207,119 @@ public class World implements Disposable, Ticking, Resizable {
         }
     }
 
+    /**
+     * Get the chunk at the given location, loading it if needed. This method will block until the chunk is loaded, use
+     * {@link #getChunkIfReady(int, int)} on the render and tick thread.
+     *
+     * @return The chunk at the given location or {@code null} if the world is paused or the chunk failed to load
+     */
     @Nullable
     public Chunk getChunk(int chunkX, int chunkY) {
-        return getChunk(new Location(chunkX, chunkY));
+        Chunk chunk = chunks.get(chunkX, chunkY);
+        if (chunk != null) {
+            return chunk;
+        }
+        if (ticker.isPaused()) {
+            return null;
+        }
+        while (true) {
+            try {
+                return loadChunk(chunkX, chunkY, true).join();
+            } catch (CompletionException e) {
+                //a load started by a non-blocking caller might have been rejected, load it again ourselves
+                if (!(e.getCause() instanceof RejectedExecutionException) || chunkLoader.isShutdown()) {
+                    return null;
+                }
+            } catch (CancellationException e) {
+                return null;
+            }
+        }
     }
 
+    /**
+     * Get the chunk at the given location without blocking. If the chunk is not loaded it will start loading in the
+     * background.
+     *
+     * @return The chunk at the given location or {@code null} if it is not loaded yet
+     */
     @Nullable
-    public Chunk getChunk(@NotNull Location chunkLoc) {
-        Chunk chunk = chunks.get(chunkLoc);
-        if (chunk == null) {
-            if (ticker.isPaused()) {
-                return null;
-            }
-            chunk = chunkLoader.load(chunkLoc.x, chunkLoc.y);
-            chunks.put(chunkLoc, chunk);
+    public Chunk getChunkIfReady(int chunkX, int chunkY) {
+        Chunk chunk = chunks.get(chunkX, chunkY);
+        if (chunk == null && !ticker.isPaused()) {
+            loadChunk(chunkX, chunkY);
         }
         return chunk;
     }
 
+    /**
+     * Load the chunk at the given location. If the chunk is already being loaded the same future is returned. Fails
+     * with a {@link RejectedExecutionException} if too many chunks are already waiting to be loaded.
+     *
+     * @return A future that completes when the chunk is loaded
+     */
+    @NotNull
+    public CompletableFuture<Chunk> loadChunk(int chunkX, int chunkY) {
+        return loadChunk(chunkX, chunkY, false);
+    }
+
+    /**
+     * @param blocking
+     *     If the calling thread will wait for the chunk. Then the chunk is read on the calling thread instead of being
+     *     rejected when too many chunks are waiting to be loaded
+     */
+    @NotNull
+    private CompletableFuture<Chunk> loadChunk(int chunkX, int chunkY, boolean blocking) {
+        Chunk chunk = chunks.get(chunkX, chunkY);
+        if (chunk != null) {
+            return CompletableFuture.completedFuture(chunk);
+        }
+        long key = CoordUtil.compactLoc(chunkX, chunkY);
+        CompletableFuture<Chunk> future = new CompletableFuture<>();
+        CompletableFuture<Chunk> existing = loadingChunks.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        //the chunk might have finished loading since we checked
+        chunk = chunks.get(chunkX, chunkY);
+        if (chunk != null) {
+            loadingChunks.remove(key, future);
+            future.complete(chunk);
+            return future;
+        }
+
+        CompletableFuture<Chunk> load;
+        try {
+            load = chunkLoader.loadAsync(chunkX, chunkY, blocking);
+        } catch (RejectedExecutionException e) {
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+        load.whenComplete((loaded, ex) -> {
+            if (ex == null) {
+                //make the chunk available before it is no longer marked as loading
+                chunks.put(chunkX, chunkY, loaded);
+                loadingChunks.remove(key, future);
+                future.complete(loaded);
+                //spawn entities only after the chunk is available as they need the world around them
+                loaded.spawnSavedEntities();
+            }
+            else {
+                loadingChunks.remove(key, future);
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (!(cause instanceof RejectedExecutionException)) {
+                    Main.logger().error("World", "Failed to load chunk (" + chunkX + "," + chunkY + ")", cause);
+                }
+                future.completeExceptionally(cause);
+            }
+        });
+        return future;
+    }
+
+    @Nullable
+    public Chunk getChunk(@NotNull Location chunkLoc) {
+        return getChunk(chunkLoc.x, chunkLoc.y);
+    }
+
     @Nullable
     public Chunk getChunkFromWorld(int worldX, int worldY) {
         int chunkX = CoordUtil.worldToChunk(worldX);
@@ -225,7 +352,7 @@ public class World implements Disposable, Ticking, Resizable {
         if (c == null) {
             return null;
         }
-        if (raw) { return c.getBlocks()[localX][localY]; }
+        if (raw) { return c.getRawBlock(localX, localY); }
         else { return c.getBlock(localX, localY); }
     }
 
@@ -299,7 +426,7 @@ public class World implements Disposable, Ticking, Resizable {
 
         Chunk chunk = getChunk(chunkX, chunkY);
         if (chunk != null) {
-            chunk.setBlock(localX, localY, material, update);
+            chunk.setMaterial(localX, localY, material, update);
         }
         return chunk;
     }
@@ -341,15 +468,18 @@ public class World implements Disposable, Ticking, Resizable {
      *     If the texture of the corresponding chunk should be updated
      */
     public void remove(int worldX, int worldY, boolean update) {
-        int chunkX = CoordUtil.worldToChunk(worldX);
-        int chunkY = CoordUtil.worldToChunk(worldY);
-
-        int localX = CoordUtil.chunkOffset(worldX);
-        int localY = CoordUtil.chunkOffset(worldY);
+        remove(getChunkFromWorld(worldX, worldY), worldX, worldY, update);
+    }
 
-        Chunk chunk = getChunk(chunkX, chunkY);
+    /**
+     * @param chunk
+     *     The chunk the given coordinates are in
+     *
+     * @see #remove(int, int, boolean)
+     */
+    void remove(@Nullable Chunk chunk, int worldX, int worldY, boolean update) {
         if (chunk != null) {
-            chunk.setBlock(localX, localY, (Block) null, update);
+            chunk.setBlock(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY), (Block) null, update);
             for (Entity entity : getEntities(worldX, worldY)) {
                 if (entity instanceof Removable) {
                     ((Removable) entity).onRemove();
@@ -397,15 +527,14 @@ public class World implements Disposable, Ticking, Resizable {
         int localX = worldX - chunkX * Chunk.CHUNK_SIZE;
         int localY = worldY - chunkY * Chunk.CHUNK_SIZE;
 
-        Chunk chunk = getChunk(chunkX, chunkY);
+        Chunk chunk = getChunkIfReady(chunkX, chunkY);
         if (chunk == null) {
             //What should we return here? we don't really know as it does not exist.
             //Return false to prevent teleportation and other actions that depend on an empty space.
             return false;
         }
 
-        Block b = chunk.getBlocks()[localX][localY];
-        return b == null || b.getMaterial() == Material.AIR;
+        return chunk.getMaterial(localX, localY) == Material.AIR;
     }
 
     /**
@@ -418,9 +547,16 @@ public class World implements Disposable, Ticking, Resizable {
      */
     public void updateBlocksAround(int worldX, int worldY) {
         for (Direction dir : Direction.CARDINAL) {
-            Block rel = getBlock(worldX + dir.dx, worldY + dir.dy, true);
+            int relX = worldX + dir.dx;
+            int relY = worldY + dir.dy;
+            //do not load chunks just to update them
+            Chunk chunk = chunks.get(CoordUtil.worldToChunk(relX), CoordUtil.worldToChunk(relY));
+            if (chunk == null) {
+                continue;
+            }
+            Block rel = chunk.getStatefulBlock(CoordUtil.chunkOffset(relX), CoordUtil.chunkOffset(relY));
             if (rel instanceof TickingBlock) {
-                ((TickingBlock) rel).setShouldTick(true);
+                ((TickingBlock) rel).wake();
             }
         }
     }
@@ -429,7 +565,7 @@ public class World implements Disposable, Ticking, Resizable {
      * @return If the given chunk is loaded in memory
      */
     public boolean isChunkLoaded(int chunkX, int chunkY) {
-        return isChunkLoaded(new Location(chunkX, chunkY));
+        return chunks.containsKey(chunkX, chunkY);
     }
 
     /**
@@ -439,7 +575,7 @@ public class World implements Disposable, Ticking, Resizable {
      * @return If the given chunk is loaded in memory
      */
     public boolean isChunkLoaded(@NotNull Location chunkLoc) {
-        return chunks.containsKey(chunkLoc);
+        return isChunkLoaded(chunkLoc.x, chunkLoc.y);
     }
 
     /**
@@ -460,12 +596,19 @@ public class World implements Disposable, Ticking, Resizable {
      * @param force
      *     If the chunk will be forced to unload
      * @param save
-     *     If the chunk will be saved
+     *     If the chunk will be saved, the entities within the chunk are then saved with it and removed from the world
      */
     public void unloadChunk(@Nullable Chunk chunk, boolean force, boolean save) {
         if (chunk != null && chunk.isLoaded() && (force || chunk.isAllowingUnloading())) {
-            if (save) {
-                chunkLoader.save(chunk);
+            if (save && Main.loadWorldFromDisk) {
+                Array<Entity> entities = getEntitiesInChunk(chunk.getChunkX(), chunk.getChunkY());
+                chunkLoader.save(chunk, entities);
+                for (Entity entity : entities) {
+                    EntityType type = EntityType.fromEntity(entity);
+                    if (type != null && type.isPersistent()) {
+                        removeEntity(entity);
+                    }
+                }
             }
             chunk.dispose();
         }
@@ -567,6 +710,8 @@ public class World implements Disposable, Ticking, Resizable {
     public void dispose() {
         render.dispose();
         ticker.stop();
+        chunkTicker.dispose();
+        chunkLoader.dispose();
         if (input != null) { input.dispose(); }
     }
 
@@ -586,49 +731,97 @@ public class World implements Disposable, Ticking, Resizable {
         }
     }
 
+    /**
+     * Save all chunks modified since they were last saved and wait for them to be written. The world is stored in
+     * place, only what has changed is written
+     *
+     * @see #saveAsync()
+     */
     public void save() {
+        saveAsync().join();
+        Main.logger().log("World saved!");
+    }
+
+    /**
+     * Take a snapshot of all chunks modified since they were last saved, the snapshots are written to disk in the
+     * background
+     *
+     * @return A future that completes when the world has been written to disk
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync() {
+        if (!Main.loadWorldFromDisk || worldFolder() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return chunkLoader.saveAll(chunks.values());
+    }
+
+    /**
+     * Prepare the world folder for use. The world is opened in place, a world saved as a zip by older versions is
+     * extracted once and the zip removed. As the zip was the save of older versions it replaces any world folder
+     * already there.
+     */
+    public void load() {
         if (!Main.loadWorldFromDisk) {
             return;
         }
         FileHandle worldFolder = worldFolder();
         if (worldFolder == null) { return; }
-        for (Chunk chunk : chunks.values()) {
-            chunkLoader.save(chunk);
+        Main.inst().getConsoleLogger().log("Loading/saving world from '" + worldFolder.file().getAbsolutePath() + '\'');
+
+        FileHandle legacyZip = worldFolder.parent().child(uuid + ".zip");
+        if (legacyZip.exists()) {
+            chunkLoader.getRegions().close();
+            extractLegacyZip(worldFolder, legacyZip);
         }
-        FileHandle worldZip = worldFolder.parent().child(uuid + ".zip");
+        else if (!worldFolder.exists()) {
+            Main.logger().log("No world save found");
+            return;
+        }
+        RegionMigrator.migrate(this, chunkLoader.getRegions());
+    }
+
+    /**
+     * Extract the zip into a temporary folder then swap it with the world folder. The zip is only deleted when the
+     * world folder was successfully replaced, otherwise it is kept so the next load can try again.
+     */
+    private void extractLegacyZip(@NotNull FileHandle worldFolder, @NotNull FileHandle legacyZip) {
+        FileHandle extracted = worldFolder.sibling(uuid + ".extracting");
+        FileHandle stale = worldFolder.sibling(uuid + ".stale");
+        extracted.deleteDirectory();
+        stale.deleteDirectory();
         try {
-            ZipUtils.zip(worldFolder, worldZip);
-            Main.logger().log("World saved!");
+            ZipUtils.unzip(extracted, legacyZip);
+            if (!extracted.exists()) {
+                throw new IOException("No files in the zip");
+            }
         } catch (IOException e) {
-            Main.logger().error("Save", "Failed to save world due to a " + e.getClass().getSimpleName(), e);
+            Main.logger().error("World", "Failed to extract world save " + legacyZip.path() + ", keeping the zip", e);
+            extracted.deleteDirectory();
             return;
         }
 
-        worldFolder.deleteDirectory();
-    }
-
-    public void load() {
-        if (!Main.loadWorldFromDisk) {
+        if (worldFolder.exists() && !worldFolder.file().renameTo(stale.file())) {
+            Main.logger().error("World", "Failed to move the old world folder " + worldFolder.path() +
+                                         " out of the way, keeping the zip");
+            extracted.deleteDirectory();
             return;
         }
-        FileHandle worldFolder = worldFolder();
-        if (worldFolder == null) { return; }
-        FileHandle worldZip = worldFolder.parent().child(uuid + ".zip");
-        Main.inst().getConsoleLogger().log("Loading/saving world from '" + worldZip.file().getAbsolutePath() + '\'');
-        if (!worldZip.exists()) {
-            Main.logger().log("No world save found");
+        if (!extracted.file().renameTo(worldFolder.file())) {
+            Main.logger().error("World", "Failed to move the extracted world to " + worldFolder.path() +
+                                         ", keeping the zip");
+            if (stale.exists() && !stale.file().renameTo(worldFolder.file())) {
+                Main.logger().error("World", "Failed to restore the old world folder, it is at " + stale.path());
+            }
+            extracted.deleteDirectory();
             return;
         }
-
-        worldFolder.deleteDirectory();
-        ZipUtils.unzip(worldFolder, worldZip);
+        stale.deleteDirectory();
+        legacyZip.delete();
     }
 
     @Override
     public void tickRare() {
-        for (Chunk chunk : chunks.values()) {
-            chunk.tickRare();
-        }
         for (Entity entity : entities) {
             entity.tickRare();
         }
@@ -685,34 +878,40 @@ public class World implements Disposable, Ticking, Resizable {
 
     @Override
     public void tick() {
+        long phaseStart = tickProfiler.start();
+        //only the snapshots are taken on this thread, writing is done in the background
+        long autosaveTicks = ticker.getTPS() * Main.autosaveInterval;
+        if (autosaveTicks > 0 && getTick() > 0 && getTick() % autosaveTicks == 0) {
+            saveAsync();
+        }
+        phaseStart = tickProfiler.lap(TickPhase.SAVE, phaseStart);
+
         //tick all box2d elements
         worldBody.tick();
         WorldRender wr = getRender();
+        phaseStart = tickProfiler.lap(TickPhase.BOX2D, phaseStart);
 
         //update light direction
         if (dayTicking) {
             time -= timeChangePerTick * timeScale;
             if (Main.renderGraphic) {
-                if (normalizedTime() >= 180) {
-                    wr.getSkylight().setDirection(time);
-                }
-                float brightness = getSkyBrightness(time);
-                if (brightness > 0) {
-                    wr.getSkylight().setColor(tmpColor.set(baseColor).mul(brightness, brightness, brightness, 1));
-                }
-                else { wr.getSkylight().setColor(Color.BLACK); }
-            }
-        }
-
-        if (Main.renderGraphic && WorldRender.lights) {
-            synchronized (WorldRender.BOX2D_LOCK) {
                 synchronized (WorldRender.LIGHT_LOCK) {
-                    getRender().getRayHandler().update();
+                    if (normalizedTime() >= 180) {
+                        wr.getSkylight().setDirection(time);
+                    }
+                    float brightness = getSkyBrightness(time);
+                    if (brightness > 0) {
+                        wr.getSkylight().setColor(tmpColor.set(baseColor).mul(brightness, brightness, brightness, 1));
+                    }
+                    else { wr.getSkylight().setColor(Color.BLACK); }
                 }
+                wr.markLightsDirty();
             }
         }
+        //the lights themselves are recalculated by the light updater
+        phaseStart = tickProfiler.lap(TickPhase.SKY, phaseStart);
 
-        //tick all chunks and blocks in chunks
+        //unload chunks then tick the blocks due this tick
         long tick = getWorldTicker().getTickId();
         for (Iterator<Chunk> iterator = chunks.values().iterator(); iterator.hasNext(); ) {
             Chunk chunk = iterator.next();
@@ -728,13 +927,15 @@ public class World implements Disposable, Ticking, Resizable {
 
                 unloadChunk(chunk);
                 iterator.remove();
-                continue;
             }
-            chunk.tick();
         }
+        phaseStart = tickProfiler.lap(TickPhase.UNLOAD, phaseStart);
+        chunkTicker.tick(blockTickScheduler.pollDue(tick));
+        phaseStart = tickProfiler.lap(TickPhase.BLOCKS, phaseStart);
 
         //tick all entities
         entities.forEach(Entity::tick);
+        tickProfiler.lap(TickPhase.ENTITIES, phaseStart);
     }
 
     /**
@@ -757,6 +958,7 @@ public class World implements Disposable, Ticking, Resizable {
      */
     public void addEntity(@NotNull Entity entity) {
         entities.add(entity);
+        entityIndex.add(entity);
         if (entity instanceof Player) {
             livingEntities.add((Player) entity);
         }
@@ -765,13 +967,14 @@ public class World implements Disposable, Ticking, Resizable {
     @NotNull
     public ObjectSet<Block> getBlocksAABB(float worldX, float worldY, float offsetX, float offsetY, boolean raw) {
         ObjectSet<Block> blocks = new ObjectSet<>();
+        WorldCursor cursor = new WorldCursor(this);
         int x = MathUtils.floor(worldX - offsetX);
         float maxX = worldX + offsetX;
         for (; x <= maxX; x++) {
             int y = MathUtils.floor(worldY - offsetY);
             float maxY = worldY + offsetY;
             for (; y <= maxY; y++) {
-                Block b = getBlock(x, y, raw);
+                Block b = cursor.getBlock(x, y, raw);
                 if (b == null) {
                     continue;
                 }
@@ -808,6 +1011,35 @@ public class World implements Disposable, Ticking, Resizable {
         return blocks;
     }
 
+    /**
+     * Same as {@link #getBlocksWithin(float, float, float, boolean)} with {@code raw = false}, but without creating any
+     * blocks
+     *
+     * @param worldX
+     *     X center (center of each block
+     * @param worldY
+     *     Y center
+     * @param radius
+     *     Radius to be equal or less from center
+     *
+     * @return The {@link CoordUtil#compactLoc(int, int) compacted} world locations within the given radius
+     */
+    @NotNull
+    public LongArray getLocationsWithin(float worldX, float worldY, float radius) {
+        Preconditions.checkArgument(radius >= 0, "Radius should be a non-negative number");
+        LongArray locations = new LongArray();
+        float radiusSquare = radius * radius;
+        int maxX = MathUtils.floor(worldX + radius);
+        int maxY = MathUtils.floor(worldY + radius);
+        for (int x = MathUtils.floor(worldX - radius); x <= maxX; x++) {
+            for (int y = MathUtils.floor(worldY - radius); y <= maxY; y++) {
+                if (Vector2.dst2(worldX, worldY, x + 0.5f, y + 0.5f) <= radiusSquare) {
+                    locations.add(CoordUtil.compactLoc(x, y));
+                }
+            }
+        }
+        return locations;
+    }
 
     /**
      * @param worldX
@@ -819,7 +1051,7 @@ public class World implements Disposable, Ticking, Resizable {
      */
     @Nullable
     public Entity getEntity(float worldX, float worldY) {
-        for (Entity entity : entities) {
+        for (Entity entity : entityIndex.query(worldX, worldY, worldX, worldY)) {
             Vector2 pos = entity.getPosition();
             if (Util.isBetween(pos.x - entity.getHalfBox2dWidth(), worldX, pos.x + entity.getHalfBox2dWidth()) && //
                 Util.isBetween(pos.y - entity.getHalfBox2dHeight(), worldY, pos.y + entity.getHalfBox2dHeight())) {
@@ -829,9 +1061,30 @@ public class World implements Disposable, Ticking, Resizable {
         return null;
     }
 
+    /**
+     * @param chunkX
+     *     The x coordinate of the chunk
+     * @param chunkY
+     *     The y coordinate of the chunk
+     *
+     * @return All entities whose position is within the given chunk
+     */
+    @NotNull
+    public Array<Entity> getEntitiesInChunk(int chunkX, int chunkY) {
+        return entityIndex.getEntitiesInChunk(chunkX, chunkY);
+    }
+
+    /**
+     * @return The spatial index of the entities in this world
+     */
+    @NotNull
+    public EntityIndex getEntityIndex() {
+        return entityIndex;
+    }
+
     public Array<Entity> getEntities(float worldX, float worldY) {
         Array<Entity> entities = new Array<>(false, 5);
-        for (Entity entity : this.entities) {
+        for (Entity entity : entityIndex.query(worldX, worldY, worldX, worldY)) {
             Vector2 pos = entity.getPosition();
             if (Util.isBetween(pos.x - entity.getHalfBox2dWidth(), worldX, pos.x + entity.getHalfBox2dWidth()) && //
                 Util.isBetween(pos.y - entity.getHalfBox2dHeight(), worldY, pos.y + entity.getHalfBox2dHeight())) {
@@ -852,16 +1105,17 @@ public class World implements Disposable, Ticking, Resizable {
      */
     @NotNull
     public Material getMaterial(int worldX, int worldY) {
-        Block block = getBlock(worldX, worldY, true);
-        if (block == null) {
+        Chunk chunk = getChunkFromWorld(worldX, worldY);
+        Material material = chunk == null ? Material.AIR :
+                            chunk.getMaterial(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY));
+        if (material == Material.AIR) {
             for (Entity entity : getEntities(worldX, worldY)) {
                 if (entity instanceof MaterialEntity) {
                     return ((MaterialEntity) entity).getMaterial();
                 }
             }
-            return Material.AIR;
         }
-        return block.getMaterial();
+        return material;
     }
 
     /**
@@ -875,6 +1129,7 @@ public class World implements Disposable, Ticking, Resizable {
      */
     public void removeEntity(@NotNull Entity entity) {
         boolean removed = entities.remove(entity);
+        entityIndex.remove(entity);
         if (entity instanceof Player) {
             removed |= livingEntities.remove(entity);
         }
@@ -891,6 +1146,19 @@ public class World implements Disposable, Ticking, Resizable {
         return chunkLoader;
     }
 
+    @NotNull
+    public BlockTickScheduler getBlockTickScheduler() {
+        return blockTickScheduler;
+    }
+
+    /**
+     * @return How long each phase of the latest ticks took
+     */
+    @NotNull
+    public Profiler<TickPhase> getTickProfiler() {
+        return tickProfiler;
+    }
+
     @Override
     public void resize(int width, int height) {
         if (Main.renderGraphic) {
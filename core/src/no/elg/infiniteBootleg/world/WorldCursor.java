@@ -0,0 +1,246 @@
+package no.elg.infiniteBootleg.world;
+
+import no.elg.infiniteBootleg.util.CoordUtil;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Access blocks in a world while remembering the last chunk resolved. Loops that access many blocks close to each
+ * other will then (mostly) skip looking up the chunk in the world.
+ * <p>
+ * A cursor is not thread safe and should only be used by a single thread, create a new cursor for each loop instead of
+ * sharing them.
+ *
+ * @author Elg
+ */
+public class WorldCursor {
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private final World world;
+    private Chunk chunk;
+    private int chunkX;
+    private int chunkY;
+
+    public WorldCursor(@NotNull World world) {
+        this.world = world;
+    }
+
+    /**
+     * @param chunkX
+     *     Chunk x coordinate
+     * @param chunkY
+     *     Chunk y coordinate
+     *
+     * @return The chunk at the given chunk coordinates
+     *
+     * @see World#getChunk(int, int)
+     */
+    @Nullable
+    public Chunk getChunk(int chunkX, int chunkY) {
+        return getChunk(chunkX, chunkY, true);
+    }
+
+    @Nullable
+    private Chunk getChunk(int chunkX, int chunkY, boolean block) {
+        Chunk chunk = this.chunk;
+        if (chunk != null && this.chunkX == chunkX && this.chunkY == chunkY && chunk.isLoaded()) {
+            hits.increment();
+            return chunk;
+        }
+        misses.increment();
+        chunk = block ? world.getChunk(chunkX, chunkY) : world.getChunkIfReady(chunkX, chunkY);
+        this.chunk = chunk;
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        return chunk;
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     *
+     * @return The chunk the given world coordinates is in
+     */
+    @Nullable
+    public Chunk getChunkFromWorld(int worldX, int worldY) {
+        return getChunk(CoordUtil.worldToChunk(worldX), CoordUtil.worldToChunk(worldY));
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     * @param raw
+     *
+     * @return The block at the given x and y
+     *
+     * @see World#getBlock(int, int, boolean)
+     */
+    @Nullable
+    @Contract("_, _, false -> !null")
+    public Block getBlock(int worldX, int worldY, boolean raw) {
+        Chunk chunk = getChunkFromWorld(worldX, worldY);
+        if (chunk == null) {
+            return null;
+        }
+        int localX = CoordUtil.chunkOffset(worldX);
+        int localY = CoordUtil.chunkOffset(worldY);
+        return raw ? chunk.getRawBlock(localX, localY) : chunk.getBlock(localX, localY);
+    }
+
+    /**
+     * Unlike {@link World#getMaterial(int, int)} entities are ignored. No block is created
+     *
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     *
+     * @return The material of the block at the given location, air if the chunk could not be loaded
+     */
+    @NotNull
+    public Material getMaterial(int worldX, int worldY) {
+        Chunk chunk = getChunkFromWorld(worldX, worldY);
+        if (chunk == null) {
+            return Material.AIR;
+        }
+        return chunk.getMaterial(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY));
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     *
+     * @return The block at the given location if its material is {@link Material#isStateful() stateful}
+     *
+     * @see Chunk#getStatefulBlock(int, int)
+     */
+    @Nullable
+    public Block getStatefulBlock(int worldX, int worldY) {
+        Chunk chunk = getChunkFromWorld(worldX, worldY);
+        if (chunk == null) {
+            return null;
+        }
+        return chunk.getStatefulBlock(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY));
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     *
+     * @return If the block at the given location is air, {@code false} if the chunk is not loaded yet
+     *
+     * @see World#isAir(int, int)
+     */
+    public boolean isAir(int worldX, int worldY) {
+        Chunk chunk = getChunk(CoordUtil.worldToChunk(worldX), CoordUtil.worldToChunk(worldY), false);
+        if (chunk == null) {
+            return false;
+        }
+        return chunk.getMaterial(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY)) == Material.AIR;
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     * @param material
+     *     The new material to at given location
+     * @param update
+     *     If the texture of the corresponding chunk should be updated
+     *
+     * @return The chunk the block was set in
+     *
+     * @see World#setBlock(int, int, Material, boolean)
+     */
+    @Nullable
+    public Chunk setBlock(int worldX, int worldY, @Nullable Material material, boolean update) {
+        Chunk chunk = getChunkFromWorld(worldX, worldY);
+        if (chunk != null) {
+            chunk.setMaterial(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY), material, update);
+        }
+        return chunk;
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     * @param block
+     *     The block at the given location
+     * @param update
+     *     If the texture of the corresponding chunk should be updated
+     *
+     * @see World#setBlock(int, int, Block, boolean)
+     */
+    public void setBlock(int worldX, int worldY, @Nullable Block block, boolean update) {
+        Chunk chunk = getChunkFromWorld(worldX, worldY);
+        if (chunk != null) {
+            chunk.setBlock(CoordUtil.chunkOffset(worldX), CoordUtil.chunkOffset(worldY), block, update);
+        }
+    }
+
+    /**
+     * @param worldX
+     *     The x coordinate from world view
+     * @param worldY
+     *     The y coordinate from world view
+     * @param update
+     *     If the texture of the corresponding chunk should be updated
+     *
+     * @see World#remove(int, int, boolean)
+     */
+    public void remove(int worldX, int worldY, boolean update) {
+        world.remove(getChunkFromWorld(worldX, worldY), worldX, worldY, update);
+    }
+
+    @NotNull
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * @return How many chunk lookups, across all cursors, that was answered by the cached chunk
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return How many chunk lookups, across all cursors, that had to ask the world
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The ratio of lookups answered by the cached chunk, between 0 and 1
+     */
+    public static float getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    /**
+     * Reset the hit and miss counters
+     */
+    public static void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+}
@@ -8,6 +8,7 @@ import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.Chunk;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.render.WorldRender;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -21,18 +22,24 @@ public abstract class StaticLightBlock extends Block {
         super(world, chunk, localX, localY, material);
         if (Main.renderGraphic) {
             light = PointLightPool.inst.obtain();
-            light.setPosition(getWorldX() + 0.5f, getWorldY() + 0.5f);
+            synchronized (WorldRender.LIGHT_LOCK) {
+                light.setPosition(getWorldX() + 0.5f, getWorldY() + 0.5f);
+            }
+            world.getRender().markLightsDirty();
         }
     }
 
     /**
-     * Update the light to make sure it collides with the current surrounding blocks
+     * Update the light to make sure it collides with the current surrounding blocks. The lights must be marked as dirty
+     * afterwards, see {@link WorldRender#markLightsDirty()}
      */
     public void updateLight() {
         if (light == null) {
             return;
         }
-        light.setPosition(light.getPosition());
+        synchronized (WorldRender.LIGHT_LOCK) {
+            light.setPosition(light.getPosition());
+        }
     }
 
     /**
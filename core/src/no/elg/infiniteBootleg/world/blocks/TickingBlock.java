@@ -2,53 +2,73 @@ package no.elg.infiniteBootleg.world.blocks;
 
 import no.elg.infiniteBootleg.Ticking;
 import no.elg.infiniteBootleg.world.Block;
+import no.elg.infiniteBootleg.world.BlockTickScheduler;
 import no.elg.infiniteBootleg.world.Chunk;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.World;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Describes a block that implements the {@link Ticking} interface.
  * <p>
- * This implementation is set up to automatically call {@link #tick()} and {@link #tickRare()} if {@link #shouldTick()}
- * is {@code true}. To change this behaviour override {@link #shouldTick()}
- * <p>
- * For each chunk has a list of blocks that extends this class and will call {@link #tryTick(boolean)} every tick.
+ * A ticking block is only ticked when it has been scheduled, either by being woken with {@link #wake()} (which {@link
+ * World#updateBlocksAround(int, int)} does for the blocks around a changed block) or by scheduling itself a number of
+ * ticks into the future with {@link #scheduleTick(long)}. Dormant blocks cost nothing per tick. {@link #tickRare()} is
+ * not called for blocks.
  *
- * @see Chunk
- * @see TntBlock TntBlock (for change of ticking behaviour)
+ * @see BlockTickScheduler
+ * @see TntBlock TntBlock (for a block scheduling itself)
  */
 public abstract class TickingBlock extends Block implements Ticking {
 
-    private boolean shouldTick;
-
     public TickingBlock(@NotNull World world, Chunk chunk, int localX, int localY, @NotNull Material material) {
         super(world, chunk, localX, localY, material);
     }
 
     /**
-     * Update if the update flag is set to true
+     * Tick this block the next tick
+     */
+    public void wake() {
+        scheduleTick(1);
+    }
+
+    /**
+     * Tick this block in the given number of ticks. If this block is already scheduled the earliest tick is kept
      *
-     * @param rare
-     *     If the the rare update should be called instead of the normal update
+     * @param delay
+     *     Number of ticks from now, at least one
      */
-    public void tryTick(boolean rare) {
-        if (shouldTick()) {
-            shouldTick = false;
-            if (rare) {
-                tickRare();
-            }
-            else {
-                tick();
-            }
-        }
+    public void scheduleTick(long delay) {
+        getWorld().getBlockTickScheduler().schedule(this, delay);
     }
 
-    public boolean shouldTick() {
-        return shouldTick;
+    /**
+     * @return If this block should be woken when it is placed or its chunk is loaded
+     */
+    public boolean tickWhenLoaded() {
+        return false;
     }
 
-    public void setShouldTick(boolean shouldTick) {
-        this.shouldTick = shouldTick;
+    /**
+     * Write the state of this block that should survive its chunk being unloaded. Nothing is saved if nothing is
+     * written
+     *
+     * @param out
+     *     Where to write the state
+     */
+    public void writeState(@NotNull DataOutput out) throws IOException {
+    }
+
+    /**
+     * Restore the state written by {@link #writeState(DataOutput)}, called when the chunk of this block is loaded
+     *
+     * @param in
+     *     The saved state
+     */
+    public void readState(@NotNull DataInput in) throws IOException {
     }
 }
@@ -7,21 +7,26 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.LongArray;
 import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.util.CoordUtil;
 import no.elg.infiniteBootleg.util.PointLightPool;
 import no.elg.infiniteBootleg.world.*;
+import no.elg.infiniteBootleg.world.render.WorldRender;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import static no.elg.infiniteBootleg.world.Material.AIR;
 
 /**
- * A block that explodes after {@link #fuseDuration} ticks
+ * A block that explodes after {@link #fuseDuration} ticks. Instead of being ticked every tick it schedules itself for
+ * the next time it blinks or explodes
  *
  * @author Elg
  */
@@ -42,9 +47,13 @@ public class TntBlock extends TickingBlock {
         }
     }
 
-    private boolean glowing;
+    private volatile boolean glowing;
     private boolean exploded;
     private long startTick;
+    /**
+     * How many ticks the fuse had burned when this block was saved
+     */
+    private long savedTicks;
     private final float strength;
 
     @Nullable
@@ -76,7 +85,7 @@ public class TntBlock extends TickingBlock {
     }
 
     @Override
-    public boolean shouldTick() {
+    public boolean tickWhenLoaded() {
         return !exploded;
     }
 
@@ -85,41 +94,50 @@ public class TntBlock extends TickingBlock {
         if (exploded) { return; }
         long currTick = getWorld().getTick();
         if (startTick == 0) {
-            startTick = currTick;
+            startTick = currTick - savedTicks;
         }
         long ticked = currTick - startTick;
         if (ticked > fuseDuration) {
             exploded = true;
             Main.inst().getScheduler().executeAsync(() -> {
-                List<Block> destroyed = new ArrayList<>();
+                //only the locations are kept, so no block is created for the (mostly stateless) blocks destroyed
+                LongArray destroyed = new LongArray();
+                WorldCursor cursor = new WorldCursor(getWorld());
                 int worldX = getWorldX();
                 int worldY = getWorldY();
                 for (int x = MathUtils.floor(worldX - strength); x < worldX + strength; x++) {
                     for (int y = MathUtils.floor(worldY - strength); y < worldY + strength; y++) {
-                        Block b = getWorld().getBlock(x, y, true);
-                        Material mat = b == null ? AIR : b.getMaterial();
+                        Material mat = cursor.getMaterial(x, y);
                         float hardness = mat.getHardness();
                         if (mat == AIR || hardness < 0) {
                             continue;
                         }
-                        double dist = Location.distCubed(worldX, worldY, b.getWorldX(), b.getWorldY()) * hardness *
+                        double dist = Location.distCubed(worldX, worldY, x, y) * hardness *
                                       Math.abs(MathUtils.random.nextGaussian() + RESISTANCE);
                         if (dist < strength * strength) {
+                            Block b = mat.isStateful() ? cursor.getStatefulBlock(x, y) : null;
                             if (b instanceof TntBlock && b != this) {
                                 TntBlock tntb = (TntBlock) b;
                                 tntb.exploded = true;
                             }
-                            destroyed.add(b);
+                            destroyed.add(CoordUtil.compactLoc(x, y));
                         }
                     }
                 }
 
                 Gdx.app.postRunnable(() -> {
                     Set<Chunk> chunks = new HashSet<>();
-                    for (Block block : destroyed) {
-                        getWorld().setBlock(block.getWorldX(), block.getWorldY(), (Block) null, false);
-                        chunks.add(block.getChunk());
-                        getWorld().updateBlocksAround(block.getWorldX(), block.getWorldY());
+                    WorldCursor syncCursor = new WorldCursor(getWorld());
+                    for (int i = 0; i < destroyed.size; i++) {
+                        long loc = destroyed.get(i);
+                        int x = CoordUtil.decompactX(loc);
+                        int y = CoordUtil.decompactY(loc);
+                        syncCursor.setBlock(x, y, (Block) null, false);
+                        Chunk chunk = syncCursor.getChunkFromWorld(x, y);
+                        if (chunk != null) {
+                            chunks.add(chunk);
+                        }
+                        getWorld().updateBlocksAround(x, y);
                     }
                     for (Chunk chunk : chunks) {
                         chunk.updateTexture(false);
@@ -130,33 +148,59 @@ public class TntBlock extends TickingBlock {
             });
         }
 
-        final long r = getWorld().getWorldTicker().getTPS() / 5;
+        //blink every fifth of a second until the last second where it glows until it explodes
+        final long tps = getWorld().getWorldTicker().getTPS();
+        final long r = Math.max(1, tps / 5);
         boolean old = glowing;
-        if (ticked >= fuseDuration - getWorld().getWorldTicker().getTPS()) {
+        long nextTick;
+        if (ticked >= fuseDuration - tps) {
             glowing = true;
+            nextTick = (long) fuseDuration + 1 - ticked;
+        }
+        else {
+            glowing = (ticked / r) % 2 == 0;
+            nextTick = r - ticked % r;
         }
-        else if (ticked % r == 0) {
-            glowing = !glowing;
+        if (!exploded) {
+            scheduleTick(Math.max(1, nextTick));
         }
 
         if (old != glowing && Main.renderGraphic) {
-            if (light == null) {
-                light = PointLightPool.inst.obtain();
-                light.setPosition(getWorldX() + 0.5f, getWorldY() + 0.5f);
-                light.setColor(Color.RED);
-                light.setXray(true);
-                light.setSoft(false);
-                light.setDistance(16);
+            synchronized (WorldRender.LIGHT_LOCK) {
+                if (light == null) {
+                    light = PointLightPool.inst.obtain();
+                    light.setPosition(getWorldX() + 0.5f, getWorldY() + 0.5f);
+                    light.setColor(Color.RED);
+                    light.setXray(true);
+                    light.setSoft(false);
+                    light.setDistance(16);
+                }
+                light.setActive(glowing);
             }
-            light.setActive(glowing);
-            getChunk().updateTexture(true);
+            getWorld().getRender().markLightsDirty();
+        }
+    }
+
+    @Override
+    public void writeState(@NotNull DataOutput out) throws IOException {
+        if (startTick != 0 && !exploded) {
+            out.writeLong(getWorld().getTick() - startTick);
         }
     }
 
     @Override
-    public @Nullable TextureRegion getTexture() {
-        if (glowing) { return whiteTexture; }
-        return super.getTexture();
+    public void readState(@NotNull DataInput in) throws IOException {
+        savedTicks = in.readLong();
+    }
+
+    @Override
+    public boolean hasOverlay() {
+        return true;
+    }
+
+    @Override
+    public @Nullable TextureRegion getOverlayTexture() {
+        return glowing ? whiteTexture : null;
     }
 
     @Override
@@ -4,15 +4,17 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.Filter;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
 import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.util.CoordUtil;
 import no.elg.infiniteBootleg.util.Tuple;
 import no.elg.infiniteBootleg.world.*;
 import no.elg.infiniteBootleg.world.blocks.StaticLightBlock;
-import no.elg.infiniteBootleg.world.render.WorldRender;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static no.elg.infiniteBootleg.world.Chunk.CHUNK_SIZE;
 
@@ -25,7 +27,11 @@ public class ChunkBody implements Disposable {
     public static final long UNSURE_FIXTURE_RELOAD_DELAY = 100L;
 
     private final Chunk chunk;
+    /**
+     * Only accessed by the ticker thread
+     */
     private Body box2dBody;
+    private volatile boolean disposed;
     //make there is only one delayed check for this chunk
     private boolean unsureFixture;
 
@@ -60,119 +66,148 @@ public class ChunkBody implements Disposable {
     }
 
     /**
-     * Update the box2d fixture of this block
+     * Update the box2d fixture of this block. The edges are calculated on the calling thread while the body is
+     * replaced on the ticker thread, see {@link WorldBody#postBox2dRunnable(Runnable)}
      *
      * @param recalculateNeighbors
      *     If the neighbors also should be updated
      * @param lightsOnly
      */
     public synchronized void update(boolean recalculateNeighbors, boolean lightsOnly) {
-        synchronized (WorldRender.BOX2D_LOCK) {
-            if (lightsOnly) {
-                updateLights();
-                return;
-            }
-            if (chunk.isAllAir()) {
-                chunk.getWorld().getWorldBody().destroyBody(box2dBody);
-                box2dBody = null;
+        WorldBody worldBody = chunk.getWorld().getWorldBody();
+        if (lightsOnly) {
+            worldBody.postBox2dRunnable(() -> {
+                if (!disposed) {
+                    updateLights();
+                }
+            });
+            return;
+        }
+        if (chunk.isAllAir()) {
+            worldBody.postBox2dRunnable(() -> replaceBody(null));
+            return;
+        }
 
-                return;
-            }
+        //recalculate the shape of the chunk (box2d)
 
-            //recalculate the shape of the chunk (box2d)
+        //each edge is four floats (x1, y1, x2, y2) relative to the chunk
+        FloatArray edges = new FloatArray(false, 256);
+        FloatArray transparentEdges = new FloatArray(false, 16);
 
-            BodyDef bodyDef = new BodyDef();
-            bodyDef.position.set(chunk.getChunkX() * CHUNK_SIZE, chunk.getChunkY() * CHUNK_SIZE);
-            bodyDef.fixedRotation = true;
-            bodyDef.awake = false;
-            bodyDef.type = BodyDef.BodyType.StaticBody;
+        for (byte localX = 0; localX < CHUNK_SIZE; localX++) {
+            for (byte localY = 0; localY < CHUNK_SIZE; localY++) {
+                Material material = chunk.getMaterial(localX, localY);
 
-            Body tmpBody = chunk.getWorld().getWorldBody().createBody(bodyDef);
+                if (!material.isSolid()) {
+                    continue;
+                }
 
-            EdgeShape edgeShape = new EdgeShape();
+                int worldX = CoordUtil.chunkToWorld(chunk.getChunkX(), localX);
+                int worldY = CoordUtil.chunkToWorld(chunk.getChunkY(), localY);
 
-            for (byte localX = 0; localX < CHUNK_SIZE; localX++) {
-                for (byte localY = 0; localY < CHUNK_SIZE; localY++) {
-                    Block b = chunk.getRawBlock(localX, localY);
+                for (Tuple<Direction, byte[]> tuple : EDGE_DEF) {
+                    Direction dir = tuple.key;
 
-                    if (b == null || !b.getMaterial().isSolid()) {
+                    //FIXME only check the chunk if the local coordinates are outside this chunk
+                    if (!CoordUtil.isInsideChunk(localX + dir.dx, localY + dir.dy) && //
+                        !chunk.getWorld().isChunkLoaded(CoordUtil.worldToChunk(worldX + dir.dx),
+                                                        CoordUtil.worldToChunk(worldY + dir.dy))) {
                         continue;
                     }
 
-                    int worldX = CoordUtil.chunkToWorld(chunk.getChunkX(), localX);
-                    int worldY = CoordUtil.chunkToWorld(chunk.getChunkY(), localY);
-
-                    for (Tuple<Direction, byte[]> tuple : EDGE_DEF) {
-                        Direction dir = tuple.key;
-
-                        //FIXME only check the chunk if the local coordinates are outside this chunk
-                        if (!CoordUtil.isInsideChunk(localX + dir.dx, localY + dir.dy) && //
-                            !chunk.getWorld().isChunkLoaded(CoordUtil.worldToChunk(worldX + dir.dx),
-                                                            CoordUtil.worldToChunk(worldY + dir.dy))) {
-                            continue;
-                        }
-
-                        Block rel;
-                        if (CoordUtil.isInsideChunk(localX + dir.dx, localY + dir.dy)) {
-                            rel = chunk.getRawBlock(localX + dir.dx, localY + dir.dy);
-                        }
-                        else {
-                            Chunk relChunk = chunk.getWorld().getChunkFromWorld(worldX + dir.dx, worldY + dir.dy);
-                            int relOffsetX = CoordUtil.chunkOffset(worldX + dir.dx);
-                            int relOffsetY = CoordUtil.chunkOffset(worldY + dir.dy);
-                            rel = relChunk.getBlocks()[relOffsetX][relOffsetY];
-                        }
-                        if (rel == null || !rel.getMaterial().isSolid() ||
-                            (dir == Direction.NORTH && localY == CHUNK_SIZE - 1)//always render top of chunk
-                            || (dir == Direction.EAST && localX == CHUNK_SIZE - 1) //and the sides
-                            || (dir == Direction.WEST && localX == 0)) {
-                            byte[] ds = tuple.value;
-                            edgeShape.set(localX + ds[0], localY + ds[1], localX + ds[2], localY + ds[3]);
-
-                            synchronized (WorldRender.BOX2D_LOCK) {
-                                Fixture fix = tmpBody.createFixture(edgeShape, 0);
-                                if (!b.getMaterial().blocksLight()) {
-                                    fix.setFilterData(World.SOLID_TRANSPARENT_FILTER);
-                                }
-                            }
-                        }
+                    Material rel;
+                    if (CoordUtil.isInsideChunk(localX + dir.dx, localY + dir.dy)) {
+                        rel = chunk.getMaterial(localX + dir.dx, localY + dir.dy);
+                    }
+                    else {
+                        Chunk relChunk = chunk.getWorld().getChunkFromWorld(worldX + dir.dx, worldY + dir.dy);
+                        int relOffsetX = CoordUtil.chunkOffset(worldX + dir.dx);
+                        int relOffsetY = CoordUtil.chunkOffset(worldY + dir.dy);
+                        rel = relChunk.getMaterial(relOffsetX, relOffsetY);
+                    }
+                    if (!rel.isSolid() ||
+                        (dir == Direction.NORTH && localY == CHUNK_SIZE - 1)//always render top of chunk
+                        || (dir == Direction.EAST && localX == CHUNK_SIZE - 1) //and the sides
+                        || (dir == Direction.WEST && localX == 0)) {
+                        byte[] ds = tuple.value;
+                        FloatArray target = material.blocksLight() ? edges : transparentEdges;
+                        target.add(localX + ds[0], localY + ds[1], localX + ds[2], localY + ds[3]);
                     }
                 }
             }
-            edgeShape.dispose();
-
+        }
 
-            chunk.getWorld().getWorldBody().destroyBody(box2dBody);
-            box2dBody = tmpBody;
+        worldBody.postBox2dRunnable(() -> {
+            BodyDef bodyDef = new BodyDef();
+            bodyDef.position.set(chunk.getChunkX() * CHUNK_SIZE, chunk.getChunkY() * CHUNK_SIZE);
+            bodyDef.fixedRotation = true;
+            bodyDef.awake = false;
+            bodyDef.type = BodyDef.BodyType.StaticBody;
 
+            Body tmpBody = worldBody.getBox2dWorld().createBody(bodyDef);
+            EdgeShape edgeShape = new EdgeShape();
+            createFixtures(tmpBody, edgeShape, edges, null);
+            createFixtures(tmpBody, edgeShape, transparentEdges, World.SOLID_TRANSPARENT_FILTER);
+            edgeShape.dispose();
 
-            Gdx.app.postRunnable(() -> chunk.getWorld().getRender().update());
+            replaceBody(tmpBody);
+        });
 
+        Gdx.app.postRunnable(() -> chunk.getWorld().getRender().update());
 
-            boolean potentiallyDirty = false;
+        boolean potentiallyDirty = false;
 
-            //TODO Try to optimize this (ie select what directions to recalculate)
-            for (Direction direction : Direction.values()) {
-                Location relChunk = Location.relative(chunk.getChunkX(), chunk.getChunkY(), direction);
-                if (chunk.getWorld().isChunkLoaded(relChunk)) {
-                    if (recalculateNeighbors) {
-                        Main.inst().getScheduler().executeAsync(() -> {
-                            chunk.getWorld().getChunk(relChunk).getChunkBody().update(false, !direction.isCardinal());
-                        });
-                    }
-                }
-                else {
-                    potentiallyDirty = true;
+        //TODO Try to optimize this (ie select what directions to recalculate)
+        for (Direction direction : Direction.values()) {
+            Location relChunk = Location.relative(chunk.getChunkX(), chunk.getChunkY(), direction);
+            if (chunk.getWorld().isChunkLoaded(relChunk)) {
+                if (recalculateNeighbors) {
+                    Main.inst().getScheduler().executeAsync(() -> {
+                        chunk.getWorld().getChunk(relChunk).getChunkBody().update(false, !direction.isCardinal());
+                    });
                 }
             }
+            else {
+                potentiallyDirty = true;
+            }
+        }
 
-            if (potentiallyDirty) {
-                scheduleFixtureReload(true);
+        if (potentiallyDirty) {
+            scheduleFixtureReload(true);
+        }
+    }
+
+    private static void createFixtures(@NotNull Body body, @NotNull EdgeShape edgeShape, @NotNull FloatArray edges,
+                                       @Nullable Filter filter) {
+        for (int i = 0; i < edges.size; i += 4) {
+            edgeShape.set(edges.get(i), edges.get(i + 1), edges.get(i + 2), edges.get(i + 3));
+            Fixture fix = body.createFixture(edgeShape, 0);
+            if (filter != null) {
+                fix.setFilterData(filter);
             }
-            updateLights();
         }
     }
 
+    /**
+     * Replace the current body with the given body, must be called on the ticker thread
+     */
+    private void replaceBody(@Nullable Body newBody) {
+        WorldBody worldBody = chunk.getWorld().getWorldBody();
+        if (box2dBody != null) {
+            worldBody.getBox2dWorld().destroyBody(box2dBody);
+        }
+        if (disposed) {
+            //the chunk was unloaded while this body was waiting to be created
+            if (newBody != null) {
+                worldBody.getBox2dWorld().destroyBody(newBody);
+            }
+            box2dBody = null;
+            return;
+        }
+        box2dBody = newBody;
+        updateLights();
+    }
+
     private synchronized void scheduleFixtureReload(boolean initial) {
         if (unsureFixture) {
             return;
@@ -192,22 +227,27 @@ public class ChunkBody implements Disposable {
     }
 
     private void updateLights() {
+        if (!Main.renderGraphic) {
+            return;
+        }
         synchronized (chunk) {
             for (int localX = 0; localX < CHUNK_SIZE; localX++) {
                 for (int localY = 0; localY < CHUNK_SIZE; localY++) {
-                    Block block = chunk.getRawBlock(localX, localY);
+                    Block block = chunk.getStatefulBlock(localX, localY);
                     if (block instanceof StaticLightBlock) {
                         ((StaticLightBlock) block).updateLight();
                     }
                 }
             }
         }
+        //the shape of the chunk might have changed, which other lights (like the sky) must be updated for as well
+        chunk.getWorld().getRender().markLightsDirty();
 
     }
 
     @Override
     public synchronized void dispose() {
-        chunk.getWorld().getWorldBody().destroyBody(box2dBody);
-        box2dBody = null;
+        disposed = true;
+        chunk.getWorld().getWorldBody().postBox2dRunnable(() -> replaceBody(null));
     }
 }
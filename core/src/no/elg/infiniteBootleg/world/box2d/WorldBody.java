@@ -3,21 +3,40 @@ package no.elg.infiniteBootleg.world.box2d;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
+import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.Ticking;
+import no.elg.infiniteBootleg.util.TickHistogram;
 import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.contact.ContactManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
 /**
  * Wrapper for {@link com.badlogic.gdx.physics.box2d.World} for asynchronous reasons
+ * <p>
+ * The box2d world must only be changed by the ticker thread. Other threads post their changes with {@link
+ * #postBox2dRunnable(Runnable)} to a lock-free queue which the ticker thread drains at the start of each tick, right
+ * before stepping the world. {@link WorldRender#BOX2D_LOCK} is held while draining and stepping, it is only needed by
+ * others to read the world from another thread (ie when casting light rays or debug rendering).
  *
  * @author Elg
  */
 public class WorldBody implements Ticking {
 
+    /**
+     * Number of lock waits to keep
+     */
+    public static final int HISTOGRAM_SIZE = 256;
+
     private final com.badlogic.gdx.physics.box2d.World box2dWorld;
     private final float timeStep;
+    private final Queue<Runnable> commands;
+    private final TickHistogram lockWaits;
+    private volatile int lastCommandCount;
 
     public WorldBody(@NotNull no.elg.infiniteBootleg.world.World world) {
         synchronized (WorldRender.BOX2D_LOCK) {
@@ -25,23 +44,36 @@ public class WorldBody implements Ticking {
             box2dWorld.setContactListener(new ContactManager(world));
             timeStep = world.getWorldTicker().getSecondsDelayBetweenTicks();
         }
+        commands = new ConcurrentLinkedQueue<>();
+        lockWaits = new TickHistogram(HISTOGRAM_SIZE);
+    }
+
+    /**
+     * Run the given runnable on the ticker thread at the start of the next tick, before the world is stepped. Changes
+     * to the box2d world must be done this way. This method can be called from any thread
+     *
+     * @param runnable
+     *     What to run
+     */
+    public void postBox2dRunnable(@NotNull Runnable runnable) {
+        commands.add(runnable);
     }
 
     /**
-     * Create a new body in this world, this method can be called from any thread
+     * Create a new body in this world at the start of the next tick, this method can be called from any thread
      *
      * @param def
      *     The definition of the body to create
+     * @param callback
+     *     Called with the created body, on the ticker thread
      */
-    @NotNull
-    public Body createBody(@NotNull BodyDef def) {
-        synchronized (WorldRender.BOX2D_LOCK) {
-            return box2dWorld.createBody(def);
-        }
+    public void createBody(@NotNull BodyDef def, @NotNull Consumer<Body> callback) {
+        postBox2dRunnable(() -> callback.accept(box2dWorld.createBody(def)));
     }
 
     /**
-     * Destroy the given body, this method can be called from any thread
+     * Destroy the given body at the start of the next tick, this method can be called from any thread. The user data of
+     * the body is cleared so no contacts are reported for it while it is destroyed
      *
      * @param body
      *     The body to destroy
@@ -50,23 +82,58 @@ public class WorldBody implements Ticking {
         if (body == null) {
             return;
         }
-        synchronized (WorldRender.BOX2D_LOCK) {
+        postBox2dRunnable(() -> {
+            body.setUserData(null);
             box2dWorld.destroyBody(body);
-        }
+        });
     }
 
-
     @Override
     public void tick() {
+        long start = System.nanoTime();
         synchronized (WorldRender.BOX2D_LOCK) {
+            lockWaits.record(System.nanoTime() - start);
+            int executed = 0;
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                try {
+                    command.run();
+                } catch (Exception e) {
+                    Main.logger().error("WorldBody", "Failed to run box2d command", e);
+                }
+                executed++;
+            }
+            lastCommandCount = executed;
             box2dWorld.step(timeStep, 8, 3);
         }
     }
 
     /**
-     * Use the returned object with care,
+     * @return How long the ticker thread had to wait for {@link WorldRender#BOX2D_LOCK} the latest ticks
+     */
+    @NotNull
+    public TickHistogram getLockWaits() {
+        return lockWaits;
+    }
+
+    /**
+     * @return Number of commands run at the start of the last tick
+     */
+    public int getLastCommandCount() {
+        return lastCommandCount;
+    }
+
+    /**
+     * @return Number of commands waiting to be run
+     */
+    public int getPendingCommandCount() {
+        return commands.size();
+    }
+
+    /**
+     * Use the returned object with care, it must only be changed from {@link #postBox2dRunnable(Runnable)}
      * <p>
-     * Synchronized over {@link WorldRender#BOX2D_LOCK} when it must be used
+     * Synchronized over {@link WorldRender#BOX2D_LOCK} when reading it from other threads
      *
      * @return The underlying box2d world
      */
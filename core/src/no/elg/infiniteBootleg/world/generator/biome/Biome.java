@@ -2,7 +2,6 @@ package no.elg.infiniteBootleg.world.generator.biome;
 
 import com.badlogic.gdx.utils.Array;
 import no.elg.infiniteBootleg.util.Tuple;
-import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.Chunk;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.generator.PerlinChunkGenerator;
@@ -87,10 +86,9 @@ public enum Biome {
     }
 
     public void fillUpTo(@NotNull PerlinNoise noise, @NotNull Chunk chunk, int localX, int localY, int height) {
-        Block[] blocks = chunk.getBlocks()[localX];
         for (int dy = 0; dy < localY; dy++) {
             Material mat = materialAt(noise, height, chunk.getWorldX() + localX, chunk.getWorldY() + dy);
-            blocks[dy] = mat.createBlock(chunk.getWorld(), chunk, localX, dy);
+            chunk.setMaterial(localX, dy, mat, false);
         }
     }
 }
@@ -0,0 +1,349 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import com.google.common.base.Preconditions;
+import no.elg.infiniteBootleg.world.Chunk;
+import no.elg.infiniteBootleg.world.Material;
+import no.elg.infiniteBootleg.world.PalettedBlockStorage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static no.elg.infiniteBootleg.world.PalettedBlockStorage.SIZE;
+
+/**
+ * Binary format of a chunk on disk.
+ * <p>
+ * An encoded chunk starts with a header of the magic bytes {@code IB}, the format version, flags, a CRC32 checksum of
+ * the body and the length of the body. The body is the palette of the chunk (its size followed by the material
+ * ordinals) followed by runs of blocks as a varint run length and a palette index. Since version 2 the runs are followed
+ * by the varint length of the state of the chunk (see {@link ChunkStateCodec}) and the state itself. If it makes the
+ * chunk smaller the body is compressed with deflate.
+ * <p>
+ * Chunks saved before this format existed are a flat array of {@link PalettedBlockStorage#SIZE} material ordinals and
+ * are still read. A chunk of that size is only read as the old format if its header or checksum is not valid and every
+ * byte is a known material ordinal.
+ *
+ * @author Elg
+ */
+public final class ChunkCodec {
+
+    public static final byte MAGIC_0 = 'I';
+    public static final byte MAGIC_1 = 'B';
+    public static final byte VERSION = 2;
+
+    private static final int FLAG_DEFLATE = 1;
+    private static final int HEADER_SIZE = 2 + 1 + 1 + Integer.BYTES + Integer.BYTES;
+    /**
+     * Bodies no larger than this are never compressed
+     */
+    private static final int DEFLATE_THRESHOLD = 64;
+    /**
+     * How many compressed bytes are copied at the time from a buffer without a backing array
+     */
+    private static final int INFLATE_CHUNK_SIZE = 4096;
+    /**
+     * Palette size and entries, then at most one run per block of a three byte varint and a palette index
+     */
+    private static final int MAX_BLOCKS_SIZE = 1 + 256 + SIZE * 4;
+    /**
+     * Maximum size of the state of a chunk
+     */
+    public static final int MAX_STATE_SIZE = 1 << 20;
+    private static final int MAX_BODY_SIZE = MAX_BLOCKS_SIZE + 5 + MAX_STATE_SIZE;
+
+    private ChunkCodec() { }
+
+    /**
+     * @param blocks
+     *     The material at each index of a chunk, see {@link PalettedBlockStorage#index(int, int)}
+     *
+     * @return The encoded chunk
+     */
+    @NotNull
+    public static byte[] encode(@NotNull IntFunction<Material> blocks) {
+        return encode(blocks, null);
+    }
+
+    /**
+     * @param blocks
+     *     The material at each index of a chunk, see {@link PalettedBlockStorage#index(int, int)}
+     * @param state
+     *     The encoded state of the chunk, see {@link ChunkStateCodec#encode(Chunk, Iterable)}
+     *
+     * @return The encoded chunk
+     */
+    @NotNull
+    public static byte[] encode(@NotNull IntFunction<Material> blocks, @Nullable byte[] state) {
+        int stateLength = state == null ? 0 : state.length;
+        Preconditions.checkArgument(stateLength <= MAX_STATE_SIZE, "Chunk state is too large: " + stateLength);
+        ByteBuffer body = ByteBuffer.allocate(MAX_BLOCKS_SIZE + 5 + stateLength);
+
+        //build the palette
+        byte[] paletteIndex = new byte[Material.values().length];
+        int paletteSize = 0;
+        byte[] palette = new byte[Material.values().length];
+        boolean[] seen = new boolean[Material.values().length];
+        for (int i = 0; i < SIZE; i++) {
+            int ordinal = blocks.apply(i).ordinal();
+            if (!seen[ordinal]) {
+                seen[ordinal] = true;
+                paletteIndex[ordinal] = (byte) paletteSize;
+                palette[paletteSize++] = (byte) ordinal;
+            }
+        }
+        body.put((byte) paletteSize);
+        body.put(palette, 0, paletteSize);
+
+        //run length encode the palette indices
+        Material current = blocks.apply(0);
+        int run = 1;
+        for (int i = 1; i < SIZE; i++) {
+            Material mat = blocks.apply(i);
+            if (mat == current) {
+                run++;
+                continue;
+            }
+            putVarInt(body, run);
+            body.put(paletteIndex[current.ordinal()]);
+            current = mat;
+            run = 1;
+        }
+        putVarInt(body, run);
+        body.put(paletteIndex[current.ordinal()]);
+
+        putVarInt(body, stateLength);
+        if (state != null) {
+            body.put(state);
+        }
+
+        int bodyLength = body.position();
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, bodyLength);
+
+        byte[] payload = body.array();
+        int payloadLength = bodyLength;
+        int flags = 0;
+        if (bodyLength > DEFLATE_THRESHOLD) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(body.array(), 0, bodyLength);
+            deflater.finish();
+            byte[] compressed = new byte[bodyLength];
+            int compressedLength = deflater.deflate(compressed);
+            boolean smaller = deflater.finished() && compressedLength < bodyLength;
+            deflater.end();
+            if (smaller) {
+                payload = compressed;
+                payloadLength = compressedLength;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+        out.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) flags);
+        out.putInt((int) crc.getValue());
+        out.putInt(bodyLength);
+        out.put(payload, 0, payloadLength);
+        return out.array();
+    }
+
+    /**
+     * Decode the given chunk into the given storage
+     *
+     * @param buffer
+     *     The encoded chunk, from its position to its limit
+     * @param blocks
+     *     The storage to decode into, its previous content is removed
+     *
+     * @return The state of the chunk or {@code null} if it has no state
+     *
+     * @throws IllegalArgumentException
+     *     If the given buffer is not a valid chunk
+     */
+    @Nullable
+    public static ByteBuffer decode(@NotNull ByteBuffer buffer, @NotNull PalettedBlockStorage blocks) {
+        int version = buffer.remaining() > 2 ? buffer.get(buffer.position() + 2) : 0;
+        ByteBuffer body;
+        if (buffer.remaining() == SIZE) {
+            ByteBuffer encoded = buffer.duplicate();
+            try {
+                body = readBody(encoded);
+            } catch (IllegalArgumentException e) {
+                if (!isLegacy(buffer)) {
+                    throw e;
+                }
+                blocks.fromBytes(buffer);
+                return null;
+            }
+            buffer.position(encoded.position());
+        }
+        else {
+            body = readBody(buffer);
+        }
+
+        Material[] materials = Material.values();
+        int paletteSize = Byte.toUnsignedInt(body.get());
+        Material[] palette = new Material[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            int ordinal = Byte.toUnsignedInt(body.get());
+            if (ordinal >= materials.length) {
+                throw new IllegalArgumentException("Unknown material ordinal " + ordinal);
+            }
+            palette[i] = materials[ordinal];
+        }
+
+        blocks.clear();
+        int index = 0;
+        while (index < SIZE) {
+            int run = getVarInt(body);
+            int paletteIndex = Byte.toUnsignedInt(body.get());
+            if (run <= 0 || index + run > SIZE || paletteIndex >= paletteSize) {
+                throw new IllegalArgumentException("Invalid run of " + run + " blocks at index " + index);
+            }
+            Material mat = palette[paletteIndex];
+            if (mat == Material.AIR) {
+                //storage is cleared to air
+                index += run;
+                continue;
+            }
+            for (int end = index + run; index < end; index++) {
+                blocks.set(index, mat);
+            }
+        }
+
+        if (version < 2) {
+            return null;
+        }
+        int stateLength = getVarInt(body);
+        if (stateLength < 0 || stateLength > body.remaining()) {
+            throw new IllegalArgumentException("Invalid chunk state length " + stateLength);
+        }
+        if (stateLength == 0) {
+            return null;
+        }
+        body.limit(body.position() + stateLength);
+        return body.slice();
+    }
+
+    /**
+     * @return If every remaining byte of the given buffer is a material ordinal, as in the format used before this codec
+     * existed
+     */
+    private static boolean isLegacy(@NotNull ByteBuffer buffer) {
+        int materials = Material.values().length;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (Byte.toUnsignedInt(buffer.get(i)) >= materials) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validate the header and return the (decompressed) body of the given chunk. An uncompressed body is a slice of the
+     * given buffer, it is not copied
+     */
+    @NotNull
+    private static ByteBuffer readBody(@NotNull ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1) {
+            throw new IllegalArgumentException("Not an encoded chunk");
+        }
+        int version = buffer.get();
+        if (version <= 0 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported chunk version " + version);
+        }
+        int flags = buffer.get();
+        int expectedCrc = buffer.getInt();
+        int bodyLength = buffer.getInt();
+        if (bodyLength <= 0 || bodyLength > MAX_BODY_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk body length " + bodyLength);
+        }
+
+        ByteBuffer body;
+        if ((flags & FLAG_DEFLATE) != 0) {
+            body = ByteBuffer.wrap(inflate(buffer, bodyLength));
+        }
+        else {
+            if (buffer.remaining() < bodyLength) {
+                throw new IllegalArgumentException("Chunk body is truncated");
+            }
+            body = buffer.slice();
+            body.limit(bodyLength);
+            buffer.position(buffer.position() + bodyLength);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IllegalArgumentException("Chunk checksum mismatch");
+        }
+        return body;
+    }
+
+    /**
+     * Inflate the remaining bytes of the given buffer. A buffer with a backing array is read directly, otherwise (ie a
+     * memory-mapped buffer) it is copied {@link #INFLATE_CHUNK_SIZE} bytes at the time
+     */
+    @NotNull
+    private static byte[] inflate(@NotNull ByteBuffer buffer, int bodyLength) {
+        byte[] body = new byte[bodyLength];
+        byte[] input = buffer.hasArray() ? null : new byte[Math.min(INFLATE_CHUNK_SIZE, buffer.remaining())];
+        Inflater inflater = new Inflater();
+        try {
+            int inflated = 0;
+            while (inflated < bodyLength && !inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!buffer.hasRemaining()) {
+                        break;
+                    }
+                    if (input == null) {
+                        inflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                        buffer.position(buffer.limit());
+                    }
+                    else {
+                        int length = Math.min(input.length, buffer.remaining());
+                        buffer.get(input, 0, length);
+                        inflater.setInput(input, 0, length);
+                    }
+                }
+                else if (inflater.needsDictionary()) {
+                    throw new IllegalArgumentException("Corrupt compressed chunk body");
+                }
+                inflated += inflater.inflate(body, inflated, bodyLength - inflated);
+            }
+            if (inflated != bodyLength) {
+                throw new IllegalArgumentException("Compressed chunk body is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed chunk body", e);
+        } finally {
+            inflater.end();
+        }
+        return body;
+    }
+
+    static void putVarInt(@NotNull ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarInt(@NotNull ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+}
@@ -1,28 +1,103 @@
 package no.elg.infiniteBootleg.world.loader;
 
-import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.util.CoordUtil;
 import no.elg.infiniteBootleg.world.Chunk;
+import no.elg.infiniteBootleg.world.PalettedBlockStorage;
 import no.elg.infiniteBootleg.world.World;
 import no.elg.infiniteBootleg.world.generator.ChunkGenerator;
+import no.elg.infiniteBootleg.world.subgrid.Entity;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handle saving and loading of chunks.
  * <p>
  * If a chunk is saved to disk then that chunk will be loaded (assuming {@link Main#loadWorldFromDisk} is {@code true}) Otherwise
  * it will be generated with the given {@link ChunkGenerator}
+ * <p>
+ * Loading is done in stages on separate threads: the chunk file is read on a small I/O pool with a bounded queue, then
+ * either decoded or generated on their own pools. If the I/O queue is full the load fails with a {@link
+ * RejectedExecutionException} and should be retried later, unless the caller is blocking on the load in which case
+ * the chunk is read on the calling thread.
+ * <p>
+ * Saving takes a snapshot of the chunk, the state of its ticking blocks and the entities within it on the calling
+ * thread, the snapshot is then written on a dedicated save thread. Chunks waiting to be written are loaded from their
+ * snapshot.
  *
  * @author Elg
  */
-public class ChunkLoader {
+public class ChunkLoader implements Disposable {
+
+    private static final int IO_THREADS = 2;
+    /**
+     * Maximum number of chunk reads waiting for an I/O thread
+     */
+    private static final int IO_QUEUE_SIZE = 256;
+    private static final long SAVE_SHUTDOWN_TIMEOUT_SECONDS = 10;
 
     private final World world;
     private final ChunkGenerator generator;
 
+    private final RegionStorage regions;
+
+    private final ExecutorService ioExecutor;
+    private final ExecutorService decodeExecutor;
+    private final ExecutorService generateExecutor;
+    private final ExecutorService saveExecutor;
+
+    /**
+     * Snapshots of chunks waiting to be written to disk
+     */
+    private final ConcurrentMap<Long, PendingSave> pendingSaves;
+
+    private volatile long lastSnapshotNanos;
+    private volatile long lastWriteNanos;
+    private volatile int lastSavedChunks;
+    private volatile long lastSavedBytes;
+    private final LongAdder totalBytesWritten;
+
     public ChunkLoader(@NotNull World world, @NotNull ChunkGenerator generator) {
         this.world = world;
         this.generator = generator;
+        regions = new RegionStorage(world);
+
+        int cpus = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ioExecutor = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 0L, TimeUnit.MILLISECONDS,
+                                            new ArrayBlockingQueue<>(IO_QUEUE_SIZE), threadFactory("io"));
+        decodeExecutor = new ThreadPoolExecutor(cpus, cpus, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                                                threadFactory("decode"));
+        generateExecutor = new ThreadPoolExecutor(cpus, cpus, 0L, TimeUnit.MILLISECONDS,
+                                                  new LinkedBlockingQueue<>(), threadFactory("generate"));
+        saveExecutor = Executors.newSingleThreadExecutor(threadFactory("save"));
+        pendingSaves = new ConcurrentHashMap<>();
+        totalBytesWritten = new LongAdder();
+    }
+
+    @NotNull
+    private static ThreadFactory threadFactory(@NotNull String stage) {
+        return new ThreadFactoryBuilder().setNameFormat("chunk-" + stage + "-%d").setDaemon(true).build();
     }
 
     /**
@@ -35,42 +110,277 @@ public class ChunkLoader {
      */
     public boolean existsOnDisk(int chunkX, int chunkY) {
         if (!Main.loadWorldFromDisk) { return false; }
-        FileHandle chunkFile = Chunk.getChunkFile(world, chunkX, chunkY);
-        return chunkFile != null && chunkFile.exists();
+        return pendingSaves.containsKey(CoordUtil.compactLoc(chunkX, chunkY)) || regions.exists(chunkX, chunkY);
+    }
+
+    /**
+     * Load the chunk at the given chunk location asynchronously. This method does not check if the chunk is already
+     * loaded or being loaded, use {@link World#loadChunk(int, int)} for that.
+     *
+     * @param chunkX
+     *     The y coordinate of the chunk (in chunk view)
+     * @param chunkY
+     *     The x coordinate of the chunk (in chunk view)
+     *
+     * @return A future of the loaded chunk
+     */
+    @NotNull
+    public CompletableFuture<Chunk> loadAsync(int chunkX, int chunkY) {
+        return loadAsync(chunkX, chunkY, false);
     }
 
     /**
-     * Load the chunk at the given chunk location
+     * Load the chunk at the given chunk location asynchronously. This method does not check if the chunk is already
+     * loaded or being loaded, use {@link World#loadChunk(int, int)} for that.
      *
      * @param chunkX
      *     The y coordinate of the chunk (in chunk view)
      * @param chunkY
      *     The x coordinate of the chunk (in chunk view)
+     * @param blocking
+     *     If the chunk should be read on the calling thread when the I/O queue is full, instead of failing with a
+     *     {@link RejectedExecutionException}
      *
-     * @return The loaded chunk
-     */
-    public Chunk load(int chunkX, int chunkY) {
-        if (existsOnDisk(chunkX, chunkY)) {
-            Chunk chunk = new Chunk(world, chunkX, chunkY);
-            //noinspection ConstantConditions checked in existsOnDisk
-            chunk.assemble(chunk.getChunkFile().readBytes());
-            return chunk;
+     * @return A future of the loaded chunk
+     */
+    @NotNull
+    public CompletableFuture<Chunk> loadAsync(int chunkX, int chunkY, boolean blocking) {
+        Executor io = blocking ? this::executeIoOrRun : ioExecutor;
+        return CompletableFuture.supplyAsync(() -> read(chunkX, chunkY), io).thenCompose(buffer -> {
+            if (buffer == null) {
+                return CompletableFuture.supplyAsync(() -> generator.generate(world, chunkX, chunkY),
+                                                     generateExecutor);
+            }
+            return CompletableFuture.supplyAsync(() -> decode(chunkX, chunkY, buffer), decodeExecutor);
+        });
+    }
+
+    /**
+     * Run the given task on the I/O pool, or on the calling thread if the I/O queue is full
+     */
+    private void executeIoOrRun(@NotNull Runnable task) {
+        try {
+            ioExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (ioExecutor.isShutdown()) {
+                throw e;
+            }
+            task.run();
         }
-        else {
+    }
+
+    /**
+     * @return If this loader has been disposed and no longer loads chunks
+     */
+    public boolean isShutdown() {
+        return ioExecutor.isShutdown();
+    }
+
+    /**
+     * @return A memory mapped view of the saved bytes of the given chunk or {@code null} if it is not saved
+     */
+    @Nullable
+    private ByteBuffer read(int chunkX, int chunkY) {
+        if (!Main.loadWorldFromDisk) {
+            return null;
+        }
+        PendingSave pending = pendingSaves.get(CoordUtil.compactLoc(chunkX, chunkY));
+        if (pending != null) {
+            return ByteBuffer.wrap(pending.encode());
+        }
+        try {
+            return regions.readMapped(chunkX, chunkY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @NotNull
+    private Chunk decode(int chunkX, int chunkY, @NotNull ByteBuffer buffer) {
+        Chunk chunk = new Chunk(world, chunkX, chunkY);
+        try {
+            chunk.assemble(buffer);
+        } catch (RuntimeException e) {
+            Main.logger().error("ChunkLoader", "Chunk " + chunkX + "," + chunkY + " is corrupt, generating it again", e);
+            chunk.dispose();
             return generator.generate(world, chunkX, chunkY);
         }
+        return chunk;
+    }
+
+    /**
+     * Save the given chunk if it has to be saved. A snapshot of the chunk is taken immediately while it is written to
+     * disk on the save thread
+     *
+     * @param entities
+     *     The entities within the chunk
+     *
+     * @return A future that completes when the chunk has been written
+     * @see Chunk#snapshotIfModified(boolean)
+     */
+    @NotNull
+    public CompletableFuture<Void> save(@NotNull Chunk chunk, @NotNull Iterable<Entity> entities) {
+        PendingSave snapshot = snapshot(chunk, entities);
+        if (snapshot == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> write(chunk.getChunkX(), chunk.getChunkY(), snapshot), saveExecutor);
     }
 
-    public void save(@NotNull Chunk chunk) {
-        if (Main.loadWorldFromDisk && chunk.isModified()) {
-            //only save if modified
-            FileHandle fh = chunk.getChunkFile();
-            if (fh == null) { return; }
-            fh.writeBytes(chunk.disassemble(), false);
+    /**
+     * Save all the given chunks that have been modified then force them to the storage device. Only taking the
+     * snapshots is done on the calling thread.
+     *
+     * @return A future that completes when the chunks have been written and synced
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAll(@NotNull Iterable<Chunk> chunks) {
+        if (!Main.loadWorldFromDisk) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        List<Chunk> saved = new ArrayList<>();
+        List<PendingSave> snapshots = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            PendingSave snapshot = snapshot(chunk, world.getEntitiesInChunk(chunk.getChunkX(), chunk.getChunkY()));
+            if (snapshot != null) {
+                saved.add(chunk);
+                snapshots.add(snapshot);
+            }
         }
+        lastSnapshotNanos = System.nanoTime() - start;
+
+        return CompletableFuture.runAsync(() -> {
+            long writeStart = System.nanoTime();
+            long bytes = 0;
+            for (int i = 0; i < saved.size(); i++) {
+                Chunk chunk = saved.get(i);
+                bytes += write(chunk.getChunkX(), chunk.getChunkY(), snapshots.get(i));
+            }
+            regions.sync();
+            lastWriteNanos = System.nanoTime() - writeStart;
+            lastSavedChunks = saved.size();
+            lastSavedBytes = bytes;
+        }, saveExecutor);
+    }
+
+    @Nullable
+    private PendingSave snapshot(@NotNull Chunk chunk, @NotNull Iterable<Entity> entities) {
+        if (!Main.loadWorldFromDisk) {
+            return null;
+        }
+        byte[] state;
+        PalettedBlockStorage.Snapshot blocks;
+        //the block states and the blocks must be from the same moment
+        synchronized (chunk) {
+            state = ChunkStateCodec.encode(chunk, entities);
+            blocks = chunk.snapshotIfModified(state != null);
+        }
+        if (blocks == null) {
+            return null;
+        }
+        PendingSave snapshot = new PendingSave(blocks, state);
+        pendingSaves.put(CoordUtil.compactLoc(chunk.getChunkX(), chunk.getChunkY()), snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Write the given snapshot to disk, must be called on the save thread
+     *
+     * @return Number of bytes written
+     */
+    private int write(int chunkX, int chunkY, @NotNull PendingSave snapshot) {
+        long key = CoordUtil.compactLoc(chunkX, chunkY);
+        try {
+            byte[] bytes = snapshot.encode();
+            regions.write(chunkX, chunkY, bytes);
+            totalBytesWritten.add(bytes.length);
+            return bytes.length;
+        } catch (IOException e) {
+            Main.logger().error("ChunkLoader", "Failed to save chunk " + chunkX + "," + chunkY, e);
+            return 0;
+        } finally {
+            pendingSaves.remove(key, snapshot);
+        }
+    }
+
+    /**
+     * @return How long it took to take the snapshots of the last {@link #saveAll(Iterable)}, in nanoseconds
+     */
+    public long getLastSnapshotNanos() {
+        return lastSnapshotNanos;
+    }
+
+    /**
+     * @return How long it took to write and sync the last {@link #saveAll(Iterable)}, in nanoseconds
+     */
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    /**
+     * @return Number of chunks written by the last {@link #saveAll(Iterable)}
+     */
+    public int getLastSavedChunks() {
+        return lastSavedChunks;
+    }
+
+    /**
+     * @return Number of bytes written by the last {@link #saveAll(Iterable)}
+     */
+    public long getLastSavedBytes() {
+        return lastSavedBytes;
+    }
+
+    /**
+     * @return Number of chunk bytes written since this loader was created
+     */
+    public long getTotalBytesWritten() {
+        return totalBytesWritten.sum();
     }
 
     public ChunkGenerator getGenerator() {
         return generator;
     }
+
+    @NotNull
+    public RegionStorage getRegions() {
+        return regions;
+    }
+
+    @Override
+    public void dispose() {
+        ioExecutor.shutdownNow();
+        decodeExecutor.shutdownNow();
+        generateExecutor.shutdownNow();
+        //let pending saves finish
+        saveExecutor.shutdown();
+        try {
+            if (!saveExecutor.awaitTermination(SAVE_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Main.logger().error("ChunkLoader", "Timed out waiting for chunks to be saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        regions.dispose();
+    }
+
+    /**
+     * Everything about a chunk that is waiting to be written
+     */
+    private static final class PendingSave {
+
+        private final PalettedBlockStorage.Snapshot blocks;
+        private final byte[] state;
+
+        private PendingSave(@NotNull PalettedBlockStorage.Snapshot blocks, @Nullable byte[] state) {
+            this.blocks = blocks;
+            this.state = state;
+        }
+
+        @NotNull
+        byte[] encode() {
+            return ChunkCodec.encode(blocks::get, state);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.world.Block;
+import no.elg.infiniteBootleg.world.Chunk;
+import no.elg.infiniteBootleg.world.PalettedBlockStorage;
+import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.blocks.TickingBlock;
+import no.elg.infiniteBootleg.world.subgrid.Entity;
+import no.elg.infiniteBootleg.world.subgrid.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import static no.elg.infiniteBootleg.world.Chunk.CHUNK_SIZE;
+
+/**
+ * Binary format of the state of a chunk that is not its blocks: the state of its {@link TickingBlock}s and the entities
+ * within it.
+ * <p>
+ * The state starts with the number of block states, each is the index of the block (see {@link
+ * PalettedBlockStorage#index(int, int)}), the length of the state and the state as written by {@link
+ * TickingBlock#writeState(DataOutput)}. Then follows the number of entities, each is the ordinal of its {@link
+ * EntityType}, its position and velocity, the length of its state and the state as written by {@link
+ * Entity#writeState(DataOutput)}. All counts and lengths are varints.
+ *
+ * @author Elg
+ */
+public final class ChunkStateCodec {
+
+    private ChunkStateCodec() { }
+
+    /**
+     * @param chunk
+     *     The chunk to encode the ticking blocks of
+     * @param entities
+     *     The entities within the chunk, entities without a {@link EntityType#isPersistent() persistent} type
+     *     are ignored
+     *
+     * @return The encoded state or {@code null} if there is nothing to save
+     */
+    @Nullable
+    public static byte[] encode(@NotNull Chunk chunk, @NotNull Iterable<Entity> entities) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            ByteArrayOutputStream stateBytes = new ByteArrayOutputStream();
+            DataOutputStream stateOut = new DataOutputStream(stateBytes);
+
+            ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+            DataOutputStream blockOut = new DataOutputStream(blockBytes);
+            int blockStates = 0;
+            for (int index = 0; index < PalettedBlockStorage.SIZE; index++) {
+                Block block = chunk.getStatefulBlock(index % CHUNK_SIZE, index / CHUNK_SIZE);
+                if (!(block instanceof TickingBlock)) {
+                    continue;
+                }
+                stateBytes.reset();
+                ((TickingBlock) block).writeState(stateOut);
+                if (stateBytes.size() == 0) {
+                    continue;
+                }
+                blockOut.writeShort(index);
+                writeVarInt(blockOut, stateBytes.size());
+                stateBytes.writeTo(blockOut);
+                blockStates++;
+            }
+
+            ByteArrayOutputStream entityBytes = new ByteArrayOutputStream();
+            DataOutputStream entityOut = new DataOutputStream(entityBytes);
+            int entityCount = 0;
+            for (Entity entity : entities) {
+                EntityType type = EntityType.fromEntity(entity);
+                if (type == null || !type.isPersistent()) {
+                    continue;
+                }
+                stateBytes.reset();
+                entity.writeState(stateOut);
+                entityOut.writeByte(type.ordinal());
+                entityOut.writeFloat(entity.getPosition().x);
+                entityOut.writeFloat(entity.getPosition().y);
+                entityOut.writeFloat(entity.getVelocity().x);
+                entityOut.writeFloat(entity.getVelocity().y);
+                writeVarInt(entityOut, stateBytes.size());
+                stateBytes.writeTo(entityOut);
+                entityCount++;
+            }
+
+            if (blockStates == 0 && entityCount == 0) {
+                return null;
+            }
+            writeVarInt(out, blockStates);
+            blockBytes.writeTo(out);
+            writeVarInt(out, entityCount);
+            entityBytes.writeTo(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            //never thrown by in-memory streams
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Restore the state of the ticking blocks of the given chunk, the blocks must already be created
+     *
+     * @param chunk
+     *     The chunk to restore the blocks of
+     * @param state
+     *     The state as returned by {@link ChunkCodec#decode(ByteBuffer, PalettedBlockStorage)}
+     *
+     * @return The encoded entities of the chunk, to be given to {@link #restoreEntities(World, byte[])} once the chunk
+     * is loaded, or {@code null} if there are no entities
+     *
+     * @throws IllegalArgumentException
+     *     If the state is corrupt
+     */
+    @Nullable
+    public static byte[] restoreBlocks(@NotNull Chunk chunk, @NotNull ByteBuffer state) {
+        try {
+            int blockStates = ChunkCodec.getVarInt(state);
+            for (int i = 0; i < blockStates; i++) {
+                int index = Short.toUnsignedInt(state.getShort());
+                int length = ChunkCodec.getVarInt(state);
+                if (length < 0 || length > state.remaining()) {
+                    throw new IllegalArgumentException("Invalid block state length " + length);
+                }
+                byte[] blockState = new byte[length];
+                state.get(blockState);
+                if (index >= PalettedBlockStorage.SIZE) {
+                    throw new IllegalArgumentException("Invalid block index " + index);
+                }
+                Block block = chunk.getStatefulBlock(index % CHUNK_SIZE, index / CHUNK_SIZE);
+                if (block instanceof TickingBlock) {
+                    ((TickingBlock) block).readState(new DataInputStream(new ByteArrayInputStream(blockState)));
+                }
+            }
+            //an entity count of zero is a single zero byte
+            if (state.get(state.position()) == 0) {
+                return null;
+            }
+            byte[] entities = new byte[state.remaining()];
+            state.get(entities);
+            return entities;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Corrupt chunk state", e);
+        }
+    }
+
+    /**
+     * Spawn the entities encoded by {@link #encode(Chunk, Iterable)}. Entities that fail to load are skipped
+     *
+     * @param world
+     *     The world to spawn the entities in
+     * @param entities
+     *     The encoded entities as returned by {@link #restoreBlocks(Chunk, ByteBuffer)}
+     *
+     * @return Number of entities spawned
+     */
+    public static int restoreEntities(@NotNull World world, @NotNull byte[] entities) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entities));
+        EntityType[] types = EntityType.values();
+        int spawned = 0;
+        try {
+            int entityCount = readVarInt(in);
+            for (int i = 0; i < entityCount; i++) {
+                int ordinal = in.readUnsignedByte();
+                float x = in.readFloat();
+                float y = in.readFloat();
+                float velX = in.readFloat();
+                float velY = in.readFloat();
+                int length = readVarInt(in);
+                if (length < 0 || length > in.available()) {
+                    throw new IOException("Invalid entity state length " + length);
+                }
+                byte[] entityState = new byte[length];
+                in.readFully(entityState);
+                if (ordinal >= types.length || !types[ordinal].isPersistent()) {
+                    Main.logger().warn("Skipping entity of unknown type " + ordinal);
+                    continue;
+                }
+                try {
+                    DataInputStream stateIn = new DataInputStream(new ByteArrayInputStream(entityState));
+                    Entity entity = types[ordinal].load(world, x, y, stateIn);
+                    entity.setVelocity(velX, velY);
+                    spawned++;
+                } catch (IOException | RuntimeException e) {
+                    Main.logger().error("ChunkState", "Failed to restore entity of type " + types[ordinal], e);
+                }
+            }
+        } catch (IOException e) {
+            Main.logger().error("ChunkState", "Saved entities are truncated", e);
+        }
+        return spawned;
+    }
+
+    private static void writeVarInt(@NotNull DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(@NotNull DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint is too long");
+    }
+}
@@ -0,0 +1,251 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * A single file storing {@link #REGION_SIZE}x{@link #REGION_SIZE} chunks.
+ * <p>
+ * The file starts with a header with one entry per chunk: the index of the first sector of the chunk and the length of
+ * the chunk in bytes. The chunk data is stored in {@link #SECTOR_SIZE} byte sectors after the header, a chunk is
+ * rewritten in place if it still fits within the sectors it already has, otherwise it is moved to the first free run of
+ * sectors large enough.
+ * <p>
+ * Reads can be done through a read-only memory mapping of the whole file (see {@link #readMapped(int, int)}), the
+ * mapping is recreated when the file grows beyond it.
+ *
+ * @author Elg
+ */
+public class RegionFile implements Closeable {
+
+    /**
+     * Number of chunks in each direction of a region, must be a power of two
+     */
+    public static final int REGION_SIZE = 32;
+    public static final int REGION_SIZE_SHIFT = 5;
+    public static final int CHUNKS_PER_REGION = REGION_SIZE * REGION_SIZE;
+
+    public static final int SECTOR_SIZE = 1024;
+    /**
+     * Bytes used by each chunk in the header, the sector offset and the length (both ints)
+     */
+    private static final int HEADER_ENTRY_SIZE = 2 * Integer.BYTES;
+    private static final int HEADER_SECTORS = CHUNKS_PER_REGION * HEADER_ENTRY_SIZE / SECTOR_SIZE;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final BitSet usedSectors;
+    private MappedByteBuffer mapped;
+    private boolean closed;
+    /**
+     * If something has been written since the last {@link #sync()}
+     */
+    private boolean unsynced;
+
+    public RegionFile(@NotNull File file) throws IOException {
+        this.file = file;
+        offsets = new int[CHUNKS_PER_REGION];
+        lengths = new int[CHUNKS_PER_REGION];
+        usedSectors = new BitSet();
+        usedSectors.set(0, HEADER_SECTORS);
+
+        raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < HEADER_SECTORS * SECTOR_SIZE) {
+            raf.setLength(HEADER_SECTORS * SECTOR_SIZE);
+        }
+        //read the whole header at once rather than one int at the time
+        byte[] headerBytes = new byte[HEADER_SECTORS * SECTOR_SIZE];
+        raf.seek(0);
+        raf.readFully(headerBytes);
+        ByteBuffer header = ByteBuffer.wrap(headerBytes);
+        long fileSectors = raf.length() / SECTOR_SIZE;
+        for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+            int offset = header.getInt();
+            int length = header.getInt();
+            if (offset < HEADER_SECTORS || length <= 0 || offset + (long) sectors(length) > fileSectors) {
+                //missing entry or outside the file
+                continue;
+            }
+            int end = offset + sectors(length);
+            int overlap = usedSectors.nextSetBit(offset);
+            if (overlap >= 0 && overlap < end) {
+                //corrupt entry, another chunk already uses some of its sectors
+                continue;
+            }
+            offsets[i] = offset;
+            lengths[i] = length;
+            usedSectors.set(offset, end);
+        }
+    }
+
+    /**
+     * @param chunkCoord
+     *     A chunk coordinate
+     *
+     * @return The region coordinate the given chunk coordinate is in
+     */
+    public static int chunkToRegion(int chunkCoord) {
+        return chunkCoord >> REGION_SIZE_SHIFT;
+    }
+
+    private static int index(int chunkX, int chunkY) {
+        return (chunkX & (REGION_SIZE - 1)) + (chunkY & (REGION_SIZE - 1)) * REGION_SIZE;
+    }
+
+    private static int sectors(int length) {
+        return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * @return If the given chunk is stored in this region
+     */
+    public synchronized boolean has(int chunkX, int chunkY) {
+        return lengths[index(chunkX, chunkY)] > 0;
+    }
+
+    /**
+     * @return The stored bytes of the given chunk or {@code null} if it is not stored in this region
+     */
+    @Nullable
+    public synchronized byte[] read(int chunkX, int chunkY) throws IOException {
+        checkOpen();
+        int index = index(chunkX, chunkY);
+        int length = lengths[index];
+        if (length <= 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        raf.seek((long) offsets[index] * SECTOR_SIZE);
+        raf.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read the given chunk without copying it out of the file. The returned buffer stays valid after this region is
+     * closed, but its content will change if the chunk is written to while the buffer is in use.
+     *
+     * @return A read-only view of the stored bytes of the given chunk or {@code null} if it is not stored in this
+     * region
+     */
+    @Nullable
+    public synchronized ByteBuffer readMapped(int chunkX, int chunkY) throws IOException {
+        checkOpen();
+        int index = index(chunkX, chunkY);
+        int length = lengths[index];
+        if (length <= 0) {
+            return null;
+        }
+        long start = (long) offsets[index] * SECTOR_SIZE;
+        if (mapped == null || mapped.capacity() < start + length) {
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        ByteBuffer slice = mapped.duplicate();
+        slice.position((int) start);
+        slice.limit((int) start + length);
+        return slice.slice();
+    }
+
+    /**
+     * Store the given bytes as the content of the given chunk
+     */
+    public synchronized void write(int chunkX, int chunkY, @NotNull byte[] bytes) throws IOException {
+        checkOpen();
+        Preconditions.checkArgument(bytes.length > 0, "Cannot write an empty chunk");
+        int index = index(chunkX, chunkY);
+        int needed = sectors(bytes.length);
+        int offset = offsets[index];
+        int allocated = lengths[index] > 0 ? sectors(lengths[index]) : 0;
+
+        if (needed <= allocated) {
+            //rewrite in place and release the sectors no longer needed
+            usedSectors.clear(offset + needed, offset + allocated);
+        }
+        else {
+            if (allocated > 0) {
+                usedSectors.clear(offset, offset + allocated);
+            }
+            offset = findFree(needed);
+            usedSectors.set(offset, offset + needed);
+        }
+
+        raf.seek((long) offset * SECTOR_SIZE);
+        raf.write(bytes);
+        long end = (long) (offset + needed) * SECTOR_SIZE;
+        if (raf.length() < end) {
+            raf.setLength(end);
+        }
+
+        offsets[index] = offset;
+        lengths[index] = bytes.length;
+        raf.seek((long) index * HEADER_ENTRY_SIZE);
+        raf.writeInt(offset);
+        raf.writeInt(bytes.length);
+        unsynced = true;
+    }
+
+    /**
+     * @return The first sector of a run of {@code count} free sectors
+     */
+    private int findFree(int count) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int nextUsed = usedSectors.nextSetBit(start);
+            if (nextUsed < 0 || nextUsed - start >= count) {
+                return start;
+            }
+            start = usedSectors.nextClearBit(nextUsed);
+        }
+    }
+
+    /**
+     * Force all written content to the storage device
+     */
+    public synchronized void sync() throws IOException {
+        checkOpen();
+        raf.getFD().sync();
+        unsynced = false;
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Close the file, anything written since the last {@link #sync()} is forced to the storage device first
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        mapped = null;
+        try {
+            if (unsynced) {
+                raf.getFD().sync();
+            }
+        } finally {
+            raf.close();
+        }
+    }
+}
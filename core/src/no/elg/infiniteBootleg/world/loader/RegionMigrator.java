@@ -0,0 +1,78 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import com.badlogic.gdx.files.FileHandle;
+import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.world.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Move chunks saved in the old one-file-per-chunk layout ({@code chunks/<x>/<y>}) into region files
+ *
+ * @author Elg
+ */
+public final class RegionMigrator {
+
+    /**
+     * Folder of the old layout, relative to the world folder
+     */
+    public static final String LEGACY_CHUNK_FOLDER = "chunks";
+
+    private RegionMigrator() { }
+
+    /**
+     * Migrate all chunks in the old layout of the given world to the given storage and delete the old layout. Does
+     * nothing if there is nothing to migrate. The old layout is only deleted when every chunk was migrated and forced
+     * to the storage device. Empty chunk files are skipped, the chunk will be generated again
+     *
+     * @return Number of chunks migrated
+     */
+    public static int migrate(@NotNull World world, @NotNull RegionStorage storage) {
+        FileHandle worldFolder = world.worldFolder();
+        if (worldFolder == null) {
+            return 0;
+        }
+        FileHandle legacyFolder = worldFolder.child(LEGACY_CHUNK_FOLDER);
+        if (!legacyFolder.isDirectory()) {
+            return 0;
+        }
+        int migrated = 0;
+        boolean failed = false;
+        for (FileHandle xFolder : legacyFolder.list()) {
+            int chunkX;
+            try {
+                chunkX = Integer.parseInt(xFolder.name());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            for (FileHandle chunkFile : xFolder.list()) {
+                try {
+                    int chunkY = Integer.parseInt(chunkFile.name());
+                    byte[] bytes = chunkFile.readBytes();
+                    if (bytes.length == 0) {
+                        Main.logger().warn("Skipping empty chunk file " + chunkFile.path());
+                        continue;
+                    }
+                    storage.write(chunkX, chunkY, bytes);
+                    migrated++;
+                } catch (NumberFormatException ignore) {
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                    Main.logger().error("Region", "Failed to migrate chunk file " + chunkFile.path(), e);
+                }
+            }
+        }
+        if (!failed && !storage.sync()) {
+            failed = true;
+        }
+        if (failed) {
+            Main.logger().warn("Not all chunks could be migrated, keeping the old chunk folder");
+        }
+        else {
+            legacyFolder.deleteDirectory();
+        }
+        Main.logger().log("Region", "Migrated " + migrated + " chunks to region files");
+        return migrated;
+    }
+}
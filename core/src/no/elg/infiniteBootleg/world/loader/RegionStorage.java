@@ -0,0 +1,189 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.util.CoordUtil;
+import no.elg.infiniteBootleg.world.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static no.elg.infiniteBootleg.world.loader.RegionFile.chunkToRegion;
+
+/**
+ * Keeps track of the open {@link RegionFile}s of a world. At most {@link #MAX_OPEN_REGIONS} regions are open at once,
+ * the least recently used region is closed when a new one has to be opened. A region is synced when closed, so no
+ * writes are lost when a region is evicted between two calls to {@link #sync()}.
+ *
+ * @author Elg
+ */
+public class RegionStorage implements Disposable {
+
+    public static final String REGION_FOLDER = "regions";
+    public static final int MAX_OPEN_REGIONS = 16;
+
+    private final World world;
+    private final Map<Long, RegionFile> regions;
+
+    public RegionStorage(@NotNull World world) {
+        this.world = world;
+        regions = new LinkedHashMap<>(MAX_OPEN_REGIONS, 0.75f, true);
+    }
+
+    /**
+     * @return The file of the given region or {@code null} if no disk should be used
+     */
+    @Nullable
+    public static FileHandle getRegionFile(@NotNull World world, int regionX, int regionY) {
+        FileHandle worldFile = world.worldFolder();
+        if (worldFile == null) { return null; }
+        return worldFile.child(REGION_FOLDER).child("r." + regionX + "." + regionY + ".bin");
+    }
+
+    /**
+     * @param create
+     *     If the region file should be created if it does not exist
+     *
+     * @return The region the given chunk is in, or {@code null} if it does not exist and {@code create} is false
+     */
+    @Nullable
+    private synchronized RegionFile getRegion(int chunkX, int chunkY, boolean create) throws IOException {
+        int regionX = chunkToRegion(chunkX);
+        int regionY = chunkToRegion(chunkY);
+        long key = CoordUtil.compactLoc(regionX, regionY);
+        RegionFile region = regions.get(key);
+        if (region != null) {
+            return region;
+        }
+        FileHandle fh = getRegionFile(world, regionX, regionY);
+        if (fh == null || (!create && !fh.exists())) {
+            return null;
+        }
+        fh.parent().mkdirs();
+        region = new RegionFile(fh.file());
+        regions.put(key, region);
+
+        if (regions.size() > MAX_OPEN_REGIONS) {
+            Iterator<RegionFile> it = regions.values().iterator();
+            RegionFile eldest = it.next();
+            it.remove();
+            eldest.close();
+        }
+        return region;
+    }
+
+    /**
+     * @return If the given chunk is stored on disk
+     */
+    public boolean exists(int chunkX, int chunkY) {
+        try {
+            RegionFile region = getRegion(chunkX, chunkY, false);
+            return region != null && region.has(chunkX, chunkY);
+        } catch (IOException e) {
+            Main.logger().error("Region", "Failed to open region of chunk (" + chunkX + "," + chunkY + ")", e);
+            return false;
+        }
+    }
+
+    /**
+     * @return The stored bytes of the given chunk, or {@code null} if it is not stored
+     */
+    @Nullable
+    public byte[] read(int chunkX, int chunkY) throws IOException {
+        while (true) {
+            RegionFile region = getRegion(chunkX, chunkY, false);
+            if (region == null) {
+                return null;
+            }
+            try {
+                return region.read(chunkX, chunkY);
+            } catch (ClosedChannelException ignore) {
+                //region was evicted while we used it, open it again
+            }
+        }
+    }
+
+    /**
+     * @return A read-only memory mapped view of the stored bytes of the given chunk, or {@code null} if it is not
+     * stored
+     *
+     * @see RegionFile#readMapped(int, int)
+     */
+    @Nullable
+    public ByteBuffer readMapped(int chunkX, int chunkY) throws IOException {
+        while (true) {
+            RegionFile region = getRegion(chunkX, chunkY, false);
+            if (region == null) {
+                return null;
+            }
+            try {
+                return region.readMapped(chunkX, chunkY);
+            } catch (ClosedChannelException ignore) {
+                //region was evicted while we used it, open it again
+            }
+        }
+    }
+
+    /**
+     * Store the given bytes as the content of the given chunk
+     */
+    public void write(int chunkX, int chunkY, @NotNull byte[] bytes) throws IOException {
+        while (true) {
+            RegionFile region = getRegion(chunkX, chunkY, true);
+            if (region == null) {
+                return;
+            }
+            try {
+                region.write(chunkX, chunkY, bytes);
+                return;
+            } catch (ClosedChannelException ignore) {
+                //region was evicted while we used it, open it again
+            }
+        }
+    }
+
+    /**
+     * Force all written content to the storage device. Regions closed since the last sync have already been forced to
+     * the storage device when they were closed
+     *
+     * @return If every region was synced
+     */
+    public synchronized boolean sync() {
+        boolean synced = true;
+        for (RegionFile region : regions.values()) {
+            try {
+                region.sync();
+            } catch (IOException e) {
+                synced = false;
+                Main.logger().error("Region", "Failed to sync region " + region.getFile(), e);
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * Close all open regions, they will be opened again when needed
+     */
+    public synchronized void close() {
+        for (RegionFile region : regions.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                Main.logger().error("Region", "Failed to close region " + region.getFile(), e);
+            }
+        }
+        regions.clear();
+    }
+
+    @Override
+    public void dispose() {
+        close();
+    }
+}
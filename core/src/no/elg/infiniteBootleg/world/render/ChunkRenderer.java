@@ -1,21 +1,27 @@
 package no.elg.infiniteBootleg.world.render;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
+import com.google.common.annotations.VisibleForTesting;
 import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.Renderer;
+import no.elg.infiniteBootleg.util.IndexedPriorityQueue;
+import no.elg.infiniteBootleg.util.TickHistogram;
 import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.Chunk;
-import org.apache.commons.collections4.list.SetUniqueList;
+import no.elg.infiniteBootleg.world.Material;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static no.elg.infiniteBootleg.world.Block.BLOCK_SIZE;
 import static no.elg.infiniteBootleg.world.Chunk.CHUNK_SIZE;
@@ -23,84 +29,289 @@ import static no.elg.infiniteBootleg.world.Chunk.CHUNK_TEXTURE_SIZE;
 import static no.elg.infiniteBootleg.world.Material.AIR;
 
 /**
+ * Renders the textures of chunks in the render queue. Each frame chunks are rendered until a time budget is used up,
+ * the budget shrinks when frames take longer than {@link #TARGET_FRAME_NANOS} and grows back when they do not. The
+ * visible chunks closest to the centre of the camera are rendered first, prioritized chunks before all others.
+ * <p>
+ * Chunks can be queued from any thread without blocking. The requests are put in a lock-free inbox which the render
+ * thread moves into an {@link IndexedPriorityQueue} only it uses, re-queueing a chunk raises its priority in place.
+ *
  * @author Elg
  */
 public class ChunkRenderer implements Renderer, Disposable {
 
+    /**
+     * The frame time to aim for
+     */
+    public static final long TARGET_FRAME_NANOS = 1_000_000_000L / 60;
+    public static final long MIN_BUDGET_NANOS = 1_000_000L;
+    public static final long MAX_BUDGET_NANOS = 8_000_000L;
+    /**
+     * How much the budget grows each frame that is fast enough
+     */
+    public static final long BUDGET_INCREASE_NANOS = 250_000L;
+    /**
+     * Number of chunk render times to keep
+     */
+    public static final int HISTOGRAM_SIZE = 256;
+    /**
+     * Subtracted from the priority of prioritized chunks so they are rendered before any other chunk
+     */
+    private static final double PRIORITIZED_OFFSET = 1e12;
+
     private final SpriteBatch batch;
-    private final SetUniqueList<Chunk> renderQueue;
+    /**
+     * Chunks queued by other threads not yet moved to the render queue
+     */
+    private final Queue<Request> inbox;
+    /**
+     * All chunks waiting to be rendered, either in the inbox or the render queue
+     */
+    private final Set<Chunk> queued;
+    /**
+     * Only used by the render thread
+     */
+    private final IndexedPriorityQueue<Chunk> renderQueue;
     private final WorldRender worldRender;
+    private final TickHistogram chunkRenderTimes;
 
-    //current rendering chunk
-    private Chunk curr;
+    private long budgetNanos;
+    /**
+     * Moving average of how long a chunk takes to render
+     */
+    private long averageChunkNanos;
+    private volatile int lastRendered;
+    /**
+     * Blocks drawn during the current frame
+     */
+    private int repaintedBlocks;
+    private volatile int lastRepaintedBlocks;
+    /**
+     * The area of the chunk being rendered, see {@link Chunk#pollDirtyArea(int[])}
+     */
+    private final int[] dirtyArea = new int[4];
 
     public ChunkRenderer(@NotNull WorldRender worldRender) {
+        this(worldRender, new SpriteBatch());
+    }
+
+    @VisibleForTesting
+    ChunkRenderer(@NotNull WorldRender worldRender, @NotNull SpriteBatch batch) {
         this.worldRender = worldRender;
-        batch = new SpriteBatch();
-        //use linked list for fast adding to end and beginning
-        List<Chunk> chunkList = Collections.synchronizedList(new LinkedList<>());
-        renderQueue = SetUniqueList.setUniqueList(chunkList);
-        batch.setProjectionMatrix(new Matrix4().setToOrtho2D(0, 0, CHUNK_TEXTURE_SIZE, Chunk.CHUNK_TEXTURE_SIZE));
+        this.batch = batch;
+        inbox = new ConcurrentLinkedQueue<>();
+        queued = ConcurrentHashMap.newKeySet();
+        renderQueue = new IndexedPriorityQueue<>();
+        batch.setProjectionMatrix(new Matrix4().setToOrtho2D(0, 0, ChunkTextureCache.PAGE_SIZE,
+                                                             ChunkTextureCache.PAGE_SIZE));
+        chunkRenderTimes = new TickHistogram(HISTOGRAM_SIZE);
+        budgetNanos = (MIN_BUDGET_NANOS + MAX_BUDGET_NANOS) / 2;
     }
 
+    /**
+     * Render the given chunk as soon as possible, can be called from any thread
+     *
+     * @param chunk
+     *     The chunk to render
+     * @param prioritize
+     *     If the chunk should be rendered before chunks that are not prioritized
+     */
     public void queueRendering(@NotNull Chunk chunk, boolean prioritize) {
-        synchronized (renderQueue) {
-            if (chunk != curr && !renderQueue.contains(chunk)) {
+        queueRendering(chunk, prioritize, true);
+    }
+
+    /**
+     * Render the given chunk as soon as possible, can be called from any thread
+     *
+     * @param chunk
+     *     The chunk to render
+     * @param prioritize
+     *     If the chunk should be rendered before chunks that are not prioritized
+     * @param updateBody
+     *     If the body of the chunk should be rebuilt, not needed when only the texture is lost
+     */
+    public void queueRendering(@NotNull Chunk chunk, boolean prioritize, boolean updateBody) {
+        if (queued.add(chunk)) {
+            if (updateBody) {
                 Main.inst().getScheduler().executeAsync(() -> chunk.getChunkBody().update(true, false));
-                if (prioritize) { renderQueue.add(0, chunk); }
-                else { renderQueue.add(chunk); }
             }
         }
+        else if (!prioritize) {
+            //already queued, and re-queueing can only raise the priority
+            return;
+        }
+        inbox.add(new Request(chunk, prioritize));
+    }
+
+    /**
+     * Move the requests in the inbox to the render queue
+     */
+    @VisibleForTesting
+    void drainInbox() {
+        OrthographicCamera camera = worldRender.getCamera();
+        float centerX = camera.position.x / CHUNK_TEXTURE_SIZE;
+        float centerY = camera.position.y / CHUNK_TEXTURE_SIZE;
+        Request request;
+        while ((request = inbox.poll()) != null) {
+            Chunk chunk = request.chunk;
+            double priority = Vector2.dst2(centerX, centerY, chunk.getChunkX() + 0.5f, chunk.getChunkY() + 0.5f);
+            if (request.prioritize) {
+                priority -= PRIORITIZED_OFFSET;
+            }
+            renderQueue.offer(chunk, priority);
+        }
+    }
+
+    /**
+     * Remove the chunk to render next from the queue. Chunks that no longer needs to be rendered are dropped
+     *
+     * @return The chunk to render next or {@code null} if there is nothing to render
+     */
+    @Nullable
+    @VisibleForTesting
+    Chunk nextChunk() {
+        Chunk chunk;
+        while ((chunk = renderQueue.poll()) != null) {
+            //allow the chunk to be queued again while it is rendered, as it might be changed during rendering
+            queued.remove(chunk);
+            if (!chunk.isAllAir() && !worldRender.isOutOfView(chunk) && chunk.isLoaded()) {
+                return chunk;
+            }
+        }
+        return null;
     }
 
     @Override
     public void render() {
-        //get the first valid chunk to render
-        Chunk chunk;
-        synchronized (renderQueue) {
-            do {
-                if (renderQueue.isEmpty()) { return; } //nothing to render
-                chunk = renderQueue.remove(0);
-            } while (chunk.isAllAir() || worldRender.isOutOfView(chunk) || !chunk.isLoaded());
-            curr = chunk;
+        //adapt the budget to how long the last frame took
+        if (Gdx.graphics.getDeltaTime() * 1_000_000_000L > TARGET_FRAME_NANOS) {
+            budgetNanos = Math.max(MIN_BUDGET_NANOS, budgetNanos * 3 / 4);
+        }
+        else {
+            budgetNanos = Math.min(MAX_BUDGET_NANOS, budgetNanos + BUDGET_INCREASE_NANOS);
         }
-        final Chunk finalChunk = chunk;
 
-        FrameBuffer fbo = chunk.getFbo();
+        long start = System.nanoTime();
+        drainInbox();
+        int rendered = 0;
+        repaintedBlocks = 0;
+        //always render at least one chunk, then as many as there are time for
+        do {
+            Chunk chunk = nextChunk();
+            if (chunk == null) {
+                break;
+            }
+            long chunkStart = System.nanoTime();
+            renderChunk(chunk);
+            long chunkNanos = System.nanoTime() - chunkStart;
+            chunkRenderTimes.record(chunkNanos);
+            averageChunkNanos = averageChunkNanos == 0 ? chunkNanos : (averageChunkNanos * 7 + chunkNanos) / 8;
+            rendered++;
+        } while (System.nanoTime() - start + averageChunkNanos <= budgetNanos);
+
+        lastRendered = rendered;
+        lastRepaintedBlocks = repaintedBlocks;
+        if (rendered > 0) {
+            Main.inst().getScheduler().executeAsync(worldRender::update);
+        }
+    }
 
-        // this is the main render function
-        Block[][] blocks = chunk.getBlocks();
-        fbo.begin();
-        batch.begin();
-        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    private void renderChunk(@NotNull Chunk chunk) {
+        ChunkTextureCache.Slot slot = worldRender.getChunkTextureCache().allocate(chunk);
+        int offsetX = slot.getX();
+        int offsetY = slot.getY();
 
         //noinspection SynchronizationOnLocalVariableOrMethodParameter
-        synchronized (finalChunk) {
-            for (int x = 0; x < CHUNK_SIZE; x++) {
-                for (int y = 0; y < CHUNK_SIZE; y++) {
-                    Block block = blocks[x][y];
-                    if (block == null || block.getMaterial() == AIR) {
+        synchronized (chunk) {
+            boolean changed = chunk.pollDirtyArea(dirtyArea);
+            if (!slot.isRendered()) {
+                //the slot contains whatever was there before, the whole chunk must be drawn
+                dirtyArea[0] = 0;
+                dirtyArea[1] = 0;
+                dirtyArea[2] = CHUNK_SIZE - 1;
+                dirtyArea[3] = CHUNK_SIZE - 1;
+            }
+            else if (!changed) {
+                return;
+            }
+            int minX = dirtyArea[0];
+            int minY = dirtyArea[1];
+            int maxX = dirtyArea[2];
+            int maxY = dirtyArea[3];
+            repaintedBlocks += (maxX - minX + 1) * (maxY - minY + 1);
+
+            // this is the main render function
+            slot.begin(Gdx.gl, minX * BLOCK_SIZE, minY * BLOCK_SIZE, (maxX - minX + 1) * BLOCK_SIZE,
+                       (maxY - minY + 1) * BLOCK_SIZE);
+            batch.begin();
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    Material material = chunk.getMaterial(x, y);
+                    if (material == AIR) {
                         continue;
                     }
-                    int dx = block.getLocalX() * BLOCK_SIZE;
-                    int dy = block.getLocalY() * BLOCK_SIZE;
+                    //only stateful blocks can have a texture different from their material
+                    Block block = chunk.getStatefulBlock(x, y);
+                    TextureRegion texture = block != null ? block.getTexture() : material.getTextureRegion();
 
-                    batch.draw(block.getTexture(), dx, dy, BLOCK_SIZE, BLOCK_SIZE);
+                    batch.draw(texture, offsetX + x * BLOCK_SIZE, offsetY + y * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
                 }
             }
+            batch.end();
+            slot.end(Gdx.gl);
         }
-        batch.end();
-        fbo.end();
+    }
 
-        Main.inst().getScheduler().executeAsync(worldRender::update);
+    /**
+     * @return Number of chunks waiting to be rendered
+     */
+    public int getQueueSize() {
+        return queued.size();
+    }
 
-        synchronized (renderQueue) {
-            curr = null;
-        }
+    /**
+     * @return How long the latest chunks took to render
+     */
+    @NotNull
+    public TickHistogram getChunkRenderTimes() {
+        return chunkRenderTimes;
+    }
+
+    /**
+     * @return Number of chunks rendered the last frame
+     */
+    public int getLastRendered() {
+        return lastRendered;
+    }
+
+    /**
+     * @return Number of blocks drawn the last frame, a chunk rendered from scratch draws {@code CHUNK_SIZE *
+     * CHUNK_SIZE} blocks
+     */
+    public int getLastRepaintedBlocks() {
+        return lastRepaintedBlocks;
+    }
+
+    /**
+     * @return How many nanoseconds chunks may currently be rendered for each frame
+     */
+    public long getBudgetNanos() {
+        return budgetNanos;
     }
 
     @Override
     public void dispose() {
         batch.dispose();
     }
+
+    private static final class Request {
+
+        private final Chunk chunk;
+        private final boolean prioritize;
+
+        private Request(@NotNull Chunk chunk, boolean prioritize) {
+            this.chunk = chunk;
+            this.prioritize = prioritize;
+        }
+    }
 }
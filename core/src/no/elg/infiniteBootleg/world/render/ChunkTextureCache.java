@@ -0,0 +1,317 @@
+package no.elg.infiniteBootleg.world.render;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.world.Chunk;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static no.elg.infiniteBootleg.world.Chunk.CHUNK_TEXTURE_SIZE;
+
+/**
+ * Caches the textures of chunks in a few large {@link FrameBuffer}s (pages), each split into chunk sized slots. Chunks
+ * sharing a page can be drawn without switching texture.
+ * <p>
+ * A slot is given to a chunk when it is first rendered and kept until the chunk is disposed, or until the slot is
+ * evicted to make room for another chunk. New pages are only created when every slot is taken, up to {@link #MAX_PAGES}
+ * pages. After that the least recently drawn slot is evicted.
+ * <p>
+ * Must only be used from the render thread
+ *
+ * @author Elg
+ */
+public class ChunkTextureCache implements Disposable {
+
+    /**
+     * Width and height of each page in pixels
+     */
+    public static final int PAGE_SIZE = 2048;
+    public static final int SLOTS_PER_ROW = PAGE_SIZE / CHUNK_TEXTURE_SIZE;
+    public static final int SLOTS_PER_PAGE = SLOTS_PER_ROW * SLOTS_PER_ROW;
+    public static final int MAX_PAGES = 8;
+
+    private final Array<FrameBuffer> pages;
+    private final Array<Slot> slots;
+    private final ObjectMap<Chunk, Slot> chunkSlots;
+    private final Array<Slot> freeSlots;
+
+    /**
+     * Incremented each time a cached texture is used, to find the least recently used slot
+     */
+    private long useCounter;
+    private long fboAllocations;
+    private long evictions;
+    private long allocationsAtLastSecond;
+    private long lastSecond;
+    private long allocationsPerSecond;
+
+    public ChunkTextureCache() {
+        pages = new Array<>(false, MAX_PAGES);
+        slots = new Array<>(false, SLOTS_PER_PAGE * MAX_PAGES);
+        chunkSlots = new ObjectMap<>();
+        freeSlots = new Array<>(false, SLOTS_PER_PAGE);
+    }
+
+    /**
+     * @param chunk
+     *     The chunk to get the texture of
+     *
+     * @return The cached texture of the given chunk or {@code null} if it is not cached
+     */
+    @Nullable
+    public TextureRegion getRegion(@NotNull Chunk chunk) {
+        Slot slot = chunkSlots.get(chunk);
+        if (slot == null || !slot.rendered) {
+            return null;
+        }
+        slot.lastUsed = ++useCounter;
+        return slot.region;
+    }
+
+    /**
+     * Get the slot of the given chunk to render into, a slot is assigned if the chunk does not have one
+     *
+     * @param chunk
+     *     The chunk to render
+     *
+     * @return The slot of the chunk
+     */
+    @NotNull
+    public Slot allocate(@NotNull Chunk chunk) {
+        Slot slot = chunkSlots.get(chunk);
+        if (slot != null) {
+            return slot;
+        }
+        if (freeSlots.isEmpty()) {
+            if (pages.size < MAX_PAGES) {
+                addPage();
+            }
+            else {
+                evictLeastRecentlyUsed();
+            }
+        }
+        slot = freeSlots.pop();
+        slot.owner = chunk;
+        slot.rendered = false;
+        slot.lastUsed = ++useCounter;
+        chunkSlots.put(chunk, slot);
+        return slot;
+    }
+
+    /**
+     * Give the slot of the given chunk to another chunk
+     *
+     * @param chunk
+     *     The chunk that is no longer needed
+     */
+    public void free(@NotNull Chunk chunk) {
+        Slot slot = chunkSlots.remove(chunk);
+        if (slot != null) {
+            slot.owner = null;
+            slot.rendered = false;
+            freeSlots.add(slot);
+        }
+    }
+
+    private void addPage() {
+        FrameBuffer fbo = new FrameBuffer(Pixmap.Format.RGBA4444, PAGE_SIZE, PAGE_SIZE, false);
+        fbo.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        fboAllocations++;
+        int page = pages.size;
+        pages.add(fbo);
+        //pop takes from the end, add in reverse so the slots are used in order
+        for (int i = SLOTS_PER_PAGE - 1; i >= 0; i--) {
+            Slot slot = new Slot(fbo, page, (i % SLOTS_PER_ROW) * CHUNK_TEXTURE_SIZE,
+                                 (i / SLOTS_PER_ROW) * CHUNK_TEXTURE_SIZE);
+            slots.add(slot);
+            freeSlots.add(slot);
+        }
+        Main.logger().debug("ChunkTextureCache", "Created chunk texture page " + (page + 1) + "/" + MAX_PAGES);
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Slot lru = null;
+        for (Slot slot : slots) {
+            if (lru == null || slot.lastUsed < lru.lastUsed) {
+                lru = slot;
+            }
+        }
+        //there is always at least one page when evicting
+        //noinspection ConstantConditions
+        free(lru.owner);
+        evictions++;
+    }
+
+    /**
+     * Update the statistics, must be called once per frame
+     */
+    public void update() {
+        long now = TimeUtils.millis();
+        if (now - lastSecond >= 1000) {
+            allocationsPerSecond = fboAllocations - allocationsAtLastSecond;
+            allocationsAtLastSecond = fboAllocations;
+            lastSecond = now;
+        }
+    }
+
+    /**
+     * @param page
+     *     The index of the page, must be less than {@link #getPageCount()}
+     *
+     * @return The texture of the given page
+     */
+    @NotNull
+    public Texture getPageTexture(int page) {
+        return pages.get(page).getColorBufferTexture();
+    }
+
+    /**
+     * @return Number of pages created
+     */
+    public int getPageCount() {
+        return pages.size;
+    }
+
+    /**
+     * @return Number of chunks with a slot
+     */
+    public int getCachedChunks() {
+        return chunkSlots.size;
+    }
+
+    /**
+     * @return Number of frame buffers created in total
+     */
+    public long getFboAllocations() {
+        return fboAllocations;
+    }
+
+    /**
+     * @return Number of frame buffers created during the last whole second
+     */
+    public long getFboAllocationsPerSecond() {
+        return allocationsPerSecond;
+    }
+
+    /**
+     * @return Number of chunks that have lost their slot to another chunk
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public void dispose() {
+        for (FrameBuffer page : pages) {
+            page.dispose();
+        }
+        pages.clear();
+        slots.clear();
+        freeSlots.clear();
+        chunkSlots.clear();
+    }
+
+    /**
+     * A chunk sized area of a page
+     */
+    public static final class Slot {
+
+        private final FrameBuffer page;
+        private final int pageIndex;
+        private final int x;
+        private final int y;
+        private final TextureRegion region;
+
+        private Chunk owner;
+        private boolean rendered;
+        private long lastUsed;
+
+        private Slot(@NotNull FrameBuffer page, int pageIndex, int x, int y) {
+            this.page = page;
+            this.pageIndex = pageIndex;
+            this.x = x;
+            this.y = y;
+            region = new TextureRegion(page.getColorBufferTexture(), x, y, CHUNK_TEXTURE_SIZE, CHUNK_TEXTURE_SIZE);
+            //frame buffers are upside down
+            region.flip(false, true);
+        }
+
+        /**
+         * Start rendering into this slot, only the area of this slot is cleared and drawn to. The projection used
+         * must cover the whole page, with this slot starting at ({@link #getX()}, {@link #getY()})
+         *
+         * @param gl
+         *     The gl instance to use
+         */
+        public void begin(@NotNull GL20 gl) {
+            begin(gl, 0, 0, CHUNK_TEXTURE_SIZE, CHUNK_TEXTURE_SIZE);
+        }
+
+        /**
+         * Start rendering into a part of this slot, only the given area is cleared and drawn to. The projection used
+         * must cover the whole page, with this slot starting at ({@link #getX()}, {@link #getY()})
+         *
+         * @param gl
+         *     The gl instance to use
+         * @param areaX
+         *     Left edge of the area relative to this slot, in pixels
+         * @param areaY
+         *     Bottom edge of the area relative to this slot, in pixels
+         * @param width
+         *     Width of the area, in pixels
+         * @param height
+         *     Height of the area, in pixels
+         */
+        public void begin(@NotNull GL20 gl, int areaX, int areaY, int width, int height) {
+            page.begin();
+            gl.glEnable(GL20.GL_SCISSOR_TEST);
+            gl.glScissor(x + areaX, y + areaY, width, height);
+            gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        }
+
+        /**
+         * Stop rendering into this slot, the slot is now usable by {@link #getRegion(Chunk)}
+         *
+         * @param gl
+         *     The gl instance to use
+         */
+        public void end(@NotNull GL20 gl) {
+            gl.glDisable(GL20.GL_SCISSOR_TEST);
+            page.end();
+            rendered = true;
+        }
+
+        /**
+         * @return If this slot has been rendered to since given to its current chunk
+         */
+        public boolean isRendered() {
+            return rendered;
+        }
+
+        public int getPageIndex() {
+            return pageIndex;
+        }
+
+        /**
+         * @return Left edge of this slot in the page, in pixels
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * @return Bottom edge of this slot in the page, in pixels
+         */
+        public int getY() {
+            return y;
+        }
+    }
+}
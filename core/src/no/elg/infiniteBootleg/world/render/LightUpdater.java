@@ -0,0 +1,102 @@
+package no.elg.infiniteBootleg.world.render;
+
+import box2dLight.RayHandler;
+import com.badlogic.gdx.utils.Disposable;
+import no.elg.infiniteBootleg.Ticking;
+import no.elg.infiniteBootleg.util.TickHistogram;
+import no.elg.infiniteBootleg.util.Ticker;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Recalculates the lights of a {@link RayHandler} on its own thread, independent of the world ticker.
+ * <p>
+ * Raycasting is only done when something that affects the lights has changed since the last update, ie a chunk body
+ * was rebuilt, a light was moved, added or removed, or the sky or camera changed. Anything doing so must call {@link
+ * #markDirty()}. As the rays are cast against the box2d world both {@link WorldRender#BOX2D_LOCK} and {@link
+ * WorldRender#LIGHT_LOCK} are held while updating.
+ *
+ * @author Elg
+ */
+public class LightUpdater implements Ticking, Disposable {
+
+    /**
+     * How often to check if the lights must be updated
+     */
+    public static final long UPDATES_PER_SECOND = 30L;
+    /**
+     * Number of update durations to keep
+     */
+    public static final int HISTOGRAM_SIZE = 256;
+
+    private final RayHandler rayHandler;
+    private final Ticker ticker;
+    private final TickHistogram updateDurations;
+
+    private volatile boolean dirty = true;
+    private volatile long updates;
+    private boolean disposed;
+
+    public LightUpdater(@NotNull RayHandler rayHandler) {
+        this.rayHandler = rayHandler;
+        updateDurations = new TickHistogram(HISTOGRAM_SIZE);
+        ticker = new Ticker(this, "Light", true, UPDATES_PER_SECOND, Ticker.DEFAULT_NAG_DELAY);
+    }
+
+    /**
+     * Recalculate the lights at the next update, can be called from any thread
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    @Override
+    public void tick() {
+        if (!dirty || !WorldRender.lights) {
+            return;
+        }
+        //clear before updating so changes made during the update are not lost
+        dirty = false;
+        long start = System.nanoTime();
+        synchronized (WorldRender.BOX2D_LOCK) {
+            synchronized (WorldRender.LIGHT_LOCK) {
+                if (disposed) {
+                    return;
+                }
+                rayHandler.update();
+            }
+        }
+        updateDurations.record(System.nanoTime() - start);
+        updates++;
+    }
+
+    /**
+     * @return How long the latest light updates took, including waiting for the locks
+     */
+    @NotNull
+    public TickHistogram getUpdateDurations() {
+        return updateDurations;
+    }
+
+    /**
+     * @return How many times the lights has been recalculated
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    @NotNull
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    @Override
+    public void dispose() {
+        ticker.stop();
+        //make sure the ticker is not using the ray handler when it is disposed
+        synchronized (WorldRender.BOX2D_LOCK) {
+            synchronized (WorldRender.LIGHT_LOCK) {
+                disposed = true;
+            }
+        }
+    }
+}
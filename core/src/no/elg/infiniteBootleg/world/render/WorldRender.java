@@ -3,9 +3,9 @@ package no.elg.infiniteBootleg.world.render;
 import box2dLight.DirectionalLight;
 import box2dLight.RayHandler;
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Graphics;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
@@ -13,18 +13,18 @@ import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.Renderer;
 import no.elg.infiniteBootleg.Updatable;
+import no.elg.infiniteBootleg.util.Profiler;
 import no.elg.infiniteBootleg.util.Resizable;
 import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.Chunk;
 import no.elg.infiniteBootleg.world.World;
 import org.jetbrains.annotations.NotNull;
-
-import java.util.HashMap;
-import java.util.Map;
+import org.jetbrains.annotations.Nullable;
 
 import static no.elg.infiniteBootleg.world.Chunk.CHUNK_TEXTURE_SIZE;
 
@@ -57,14 +57,11 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
      * @see #resetSkylight()
      */
     public static final float SKYLIGHT_ZOOM_THRESHOLD = 0.25f;
-    /**
-     * How many {@link Graphics#getFramesPerSecond()} should there be when rendering multiple chunks
-     */
-    public static final int FPS_FAST_CHUNK_RENDER_THRESHOLD = 10;
 
 
     public final World world;
     private RayHandler rayHandler;
+    private LightUpdater lightUpdater;
     private EntityRenderer entityRenderer;
     private SpriteBatch batch;
 
@@ -72,6 +69,7 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
     private final Rectangle viewBound;
     private final ChunkViewed chunksInView;
     private ChunkRenderer chunkRenderer;
+    private ChunkTextureCache chunkTextureCache;
 
     private Box2DDebugRenderer box2DDebugRenderer;
     private DebugChunkRenderer chunkDebugRenderer;
@@ -79,12 +77,32 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
     private final Matrix4 m4 = new Matrix4();
     private DirectionalLight skylight;
     private float lastZoom;
-    Map<Chunk, TextureRegion> draw = new HashMap<>();
+    private final Array<Chunk> drawChunks = new Array<>(false, 128);
+    private final Array<TextureRegion> drawRegions = new Array<>(false, 128);
+    private int lastChunkTextureBinds;
+    private int lastOverlaysDrawn;
+    private final Profiler<RenderPhase> renderProfiler = new Profiler<>("World render", RenderPhase.class);
 
     public static boolean lights = true;
     public static boolean debugBox2d = false;
 
+    /**
+     * The phases of {@link #render()}, in order
+     */
+    public enum RenderPhase {
+        CHUNK_TEXTURES,
+        CHUNKS,
+        ENTITIES,
+        LIGHTS,
+        DEBUG
+    }
+
     public final static Object LIGHT_LOCK = new Object();
+    /**
+     * Held by the ticker thread while it changes and steps the box2d world, must be held when reading the box2d world
+     * from any other thread. Other threads must not change the box2d world, see {@link
+     * no.elg.infiniteBootleg.world.box2d.WorldBody#postBox2dRunnable(Runnable)}
+     */
     public final static Object BOX2D_LOCK = new Object();
 
     public final static class ChunkViewed {
@@ -111,6 +129,7 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
         this.world = world;
 
         if (Main.renderGraphic) {
+            chunkTextureCache = new ChunkTextureCache();
             chunkRenderer = new ChunkRenderer(this);
             entityRenderer = new EntityRenderer(this);
 
@@ -132,23 +151,23 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
             rayHandler = new RayHandler(world.getWorldBody().getBox2dWorld(), 200, 140);
             rayHandler.setBlurNum(2);
             rayHandler.setAmbientLight(AMBIENT_LIGHT, AMBIENT_LIGHT, AMBIENT_LIGHT, 1);
+            lightUpdater = new LightUpdater(rayHandler);
             resetSkylight();
         }
     }
 
     public void resetSkylight() {
-        synchronized (BOX2D_LOCK) {
-            synchronized (LIGHT_LOCK) {
-                if (skylight != null) {
-                    skylight.remove();
-                }
-                skylight = new DirectionalLight(rayHandler, blocksHorizontally() * RAYS_PER_BLOCK, Color.WHITE,
-                                                World.SUNRISE_TIME);
-                skylight.setStaticLight(true);
-                skylight.setContactFilter(World.LIGHT_FILTER);
-                skylight.setSoftnessLength(World.SKYLIGHT_SOFTNESS_LENGTH); //restore lights 1.4 functionality
+        synchronized (LIGHT_LOCK) {
+            if (skylight != null) {
+                skylight.remove();
             }
+            skylight = new DirectionalLight(rayHandler, blocksHorizontally() * RAYS_PER_BLOCK, Color.WHITE,
+                                            World.SUNRISE_TIME);
+            skylight.setStaticLight(true);
+            skylight.setContactFilter(World.LIGHT_FILTER);
+            skylight.setSoftnessLength(World.SKYLIGHT_SOFTNESS_LENGTH); //restore lights 1.4 functionality
         }
+        markLightsDirty();
     }
 
     @Override
@@ -162,6 +181,8 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
 
         if (lights) {
             rayHandler.setCombinedMatrix(m4, 0, 0, width, height);
+            //lights outside the camera are culled
+            markLightsDirty();
         }
 
         if (!getWorld().getWorldTicker().isPaused()) {
@@ -190,25 +211,20 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
 
     @Override
     public void render() {
+        long phaseStart = renderProfiler.start();
         chunkRenderer.render();
-        if (Gdx.graphics.getFramesPerSecond() > FPS_FAST_CHUNK_RENDER_THRESHOLD) {
-            //only render more chunks when the computer isn't struggling with the rendering
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-            chunkRenderer.render();
-        }
+        phaseStart = renderProfiler.lap(RenderPhase.CHUNK_TEXTURES, phaseStart);
 
-        draw.clear();
+        chunkTextureCache.update();
+        drawChunks.clear();
+        drawRegions.clear();
 
         for (int y = chunksInView.vertical_start; y < chunksInView.vertical_end; y++) {
             for (int x = chunksInView.horizontal_start; x < chunksInView.horizontal_end; x++) {
-                Chunk chunk = world.getChunk(x, y);
+                Chunk chunk = world.getChunkIfReady(x, y);
+                if (chunk == null) {
+                    continue;
+                }
                 chunk.view();
 
                 if (chunk.isDirty()) {
@@ -230,33 +246,67 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
                 //noinspection LibGDXFlushInsideLoop
                 TextureRegion textureRegion = chunk.getTextureRegion();
                 if (textureRegion == null) {
+                    //the texture was evicted from the cache, only the texture must be rendered again
+                    chunkRenderer.queueRendering(chunk, false, false);
                     continue;
                 }
-                draw.put(chunk, textureRegion);
+                drawChunks.add(chunk);
+                drawRegions.add(textureRegion);
             }
         }
         batch.begin();
-        for (Map.Entry<Chunk, TextureRegion> entry : draw.entrySet()) {
-            float dx = entry.getKey().getChunkX() * CHUNK_TEXTURE_SIZE;
-            float dy = entry.getKey().getChunkY() * CHUNK_TEXTURE_SIZE;
-            batch.draw(entry.getValue(), dx, dy, CHUNK_TEXTURE_SIZE, CHUNK_TEXTURE_SIZE);
+        //draw the chunks one page at the time so the batch is only flushed when changing page
+        lastChunkTextureBinds = 0;
+        for (int page = 0; page < chunkTextureCache.getPageCount(); page++) {
+            Texture texture = chunkTextureCache.getPageTexture(page);
+            boolean bound = false;
+            for (int i = 0; i < drawRegions.size; i++) {
+                TextureRegion region = drawRegions.get(i);
+                if (region.getTexture() != texture) {
+                    continue;
+                }
+                Chunk chunk = drawChunks.get(i);
+                float dx = chunk.getChunkX() * CHUNK_TEXTURE_SIZE;
+                float dy = chunk.getChunkY() * CHUNK_TEXTURE_SIZE;
+                batch.draw(region, dx, dy, CHUNK_TEXTURE_SIZE, CHUNK_TEXTURE_SIZE);
+                bound = true;
+            }
+            if (bound) {
+                lastChunkTextureBinds++;
+            }
         }
+        //blocks that change how they look often are drawn every frame, so the chunk textures stay valid
+        int overlays = 0;
+        for (int i = 0; i < drawChunks.size; i++) {
+            for (Block block : drawChunks.get(i).getOverlayBlocks()) {
+                TextureRegion overlay = block.getOverlayTexture();
+                if (overlay != null) {
+                    batch.draw(overlay, block.getWorldX() * Block.BLOCK_SIZE, block.getWorldY() * Block.BLOCK_SIZE,
+                               Block.BLOCK_SIZE, Block.BLOCK_SIZE);
+                    overlays++;
+                }
+            }
+        }
+        lastOverlaysDrawn = overlays;
+        phaseStart = renderProfiler.lap(RenderPhase.CHUNKS, phaseStart);
         entityRenderer.render();
         batch.end();
+        phaseStart = renderProfiler.lap(RenderPhase.ENTITIES, phaseStart);
         if (lights) {
 
-            synchronized (BOX2D_LOCK) {
-                synchronized (LIGHT_LOCK) {
-                    rayHandler.render();
-                }
+            //rendering only uses the result of the last light update, not the box2d world
+            synchronized (LIGHT_LOCK) {
+                rayHandler.render();
             }
         }
+        phaseStart = renderProfiler.lap(RenderPhase.LIGHTS, phaseStart);
         if (debugBox2d && Main.debug) {
             synchronized (BOX2D_LOCK) {
                 box2DDebugRenderer.render(world.getWorldBody().getBox2dWorld(), m4);
             }
             chunkDebugRenderer.render();
         }
+        renderProfiler.lap(RenderPhase.DEBUG, phaseStart);
     }
 
     /**
@@ -274,6 +324,14 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
         return chunksInView;
     }
 
+    /**
+     * @return How long each phase of the latest frames took
+     */
+    @NotNull
+    public Profiler<RenderPhase> getRenderProfiler() {
+        return renderProfiler;
+    }
+
     public OrthographicCamera getCamera() {
         return camera;
     }
@@ -286,6 +344,29 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
         return chunkRenderer;
     }
 
+    /**
+     * @return How many chunk texture pages was drawn from during the last frame
+     */
+    public int getLastChunkTextureBinds() {
+        return lastChunkTextureBinds;
+    }
+
+    /**
+     * @return How many block overlays was drawn during the last frame
+     *
+     * @see Block#getOverlayTexture()
+     */
+    public int getLastOverlaysDrawn() {
+        return lastOverlaysDrawn;
+    }
+
+    /**
+     * @return Where the chunk textures are stored, {@code null} if graphics are disabled
+     */
+    public ChunkTextureCache getChunkTextureCache() {
+        return chunkTextureCache;
+    }
+
     public EntityRenderer getEntityRenderer() {
         return entityRenderer;
     }
@@ -298,6 +379,26 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
         return rayHandler;
     }
 
+    /**
+     * @return The thread updating the lights, {@code null} if graphics are disabled
+     */
+    @Nullable
+    public LightUpdater getLightUpdater() {
+        return lightUpdater;
+    }
+
+    /**
+     * Recalculate the lights as soon as possible. Must be called when anything affecting the lights changes, can be
+     * called from any thread
+     *
+     * @see LightUpdater#markDirty()
+     */
+    public void markLightsDirty() {
+        if (lightUpdater != null) {
+            lightUpdater.markDirty();
+        }
+    }
+
     public DirectionalLight getSkylight() {
         synchronized (LIGHT_LOCK) {
             return skylight;
@@ -315,6 +416,8 @@ public class WorldRender implements Updatable, Renderer, Disposable, Resizable {
     public void dispose() {
         batch.dispose();
         chunkRenderer.dispose();
+        chunkTextureCache.dispose();
+        lightUpdater.dispose();
         rayHandler.dispose();
     }
 
@@ -11,13 +11,17 @@ import no.elg.infiniteBootleg.Ticking;
 import no.elg.infiniteBootleg.util.Util;
 import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.World;
-import no.elg.infiniteBootleg.world.render.WorldRender;
+import no.elg.infiniteBootleg.world.WorldCursor;
+import no.elg.infiniteBootleg.world.box2d.WorldBody;
 import no.elg.infiniteBootleg.world.subgrid.contact.ContactHandler;
 import no.elg.infiniteBootleg.world.subgrid.contact.ContactType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * An entity that can move between the main world grid.
@@ -31,7 +35,7 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
     private final World world;
     private final UUID uuid;
 
-    private Body body;
+    private volatile Body body;
     private boolean flying; //ignore world gravity
     private Vector2 posCache;
     private Vector2 velCache;
@@ -44,10 +48,20 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
     }
 
     public Entity(@NotNull World world, float worldX, float worldY, boolean center) {
+        this(world, worldX, worldY, center, true);
+    }
+
+    /**
+     * @param center
+     *     If the given coordinates are the lower left corner of the entity rather than its center
+     * @param validate
+     *     If the entity should be moved upwards until it is at a valid location. Entities restored from disk are not
+     *     validated as the chunks around them might not be loaded yet
+     */
+    protected Entity(@NotNull World world, float worldX, float worldY, boolean center, boolean validate) {
         uuid = UUID.randomUUID();
         this.world = world;
         flying = false;
-        world.addEntity(this);
         posCache = new Vector2(worldX, worldY);
         velCache = new Vector2();
         filter = World.ENTITY_FILTER;
@@ -60,7 +74,7 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
         boolean print = true;
         //make sure we're not stuck in a infinite loop if the given height is zero
         float checkStep = getHalfBox2dHeight() != 0 ? getHalfBox2dHeight() : 0.1f;
-        while (isInvalidLocation(posCache.x, posCache.y)) {
+        while (validate && isInvalidLocation(posCache.x, posCache.y)) {
             if (print) {
                 Main.logger().debug("Entity", //
                                     String.format("Did not spawn %s at (%.2f,%.2f) as the spawn is invalid", //
@@ -70,12 +84,22 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
             posCache.y += checkStep;
         }
 
-        synchronized (WorldRender.BOX2D_LOCK) {
-            BodyDef def = createBodyDef(posCache.x, posCache.y);
-            body = world.getWorldBody().createBody(def);
-            createFixture(body);
-            body.setGravityScale(2f);
-        }
+        BodyDef def = createBodyDef(posCache.x, posCache.y);
+        world.getWorldBody().createBody(def, created -> {
+            synchronized (this) {
+                if (!valid) {
+                    //disposed before the body was created
+                    world.getWorldBody().destroyBody(created);
+                    return;
+                }
+                createFixture(created);
+                created.setGravityScale(2f);
+                //used to find this entity when its body is in a contact
+                created.setUserData(this);
+                body = created;
+            }
+        });
+        world.addEntity(this);
     }
 
     @NotNull
@@ -127,14 +151,26 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
             }
         }
 
-        synchronized (WorldRender.BOX2D_LOCK) {
-            body.setTransform(worldX, worldY, 0);
+        float x = worldX;
+        float y = worldY;
+        updateBody(body -> {
+            body.setTransform(x, y, 0);
             body.setAngularVelocity(0);
             body.setLinearVelocity(0, 0);
             body.setAwake(true);
-            posCache.x = worldX;
-            posCache.y = worldY;
-        }
+        });
+        posCache = new Vector2(worldX, worldY);
+        world.getEntityIndex().update(this);
+    }
+
+    /**
+     * Write the state of this entity, besides its position and velocity, to be saved with the chunk it is in. Only
+     * called for entities with a {@link EntityType#isPersistent() persistent} type
+     *
+     * @param out
+     *     Where to write the state
+     */
+    public void writeState(@NotNull DataOutput out) throws IOException {
     }
 
     /**
@@ -155,13 +191,14 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
     @NotNull
     public ObjectSet<Block> touchingBlocks(float worldX, float worldY) {
         ObjectSet<Block> blocks = new ObjectSet<>();
+        WorldCursor cursor = new WorldCursor(world);
         int x = MathUtils.floor(worldX - getHalfBox2dWidth());
         float maxX = worldX + getHalfBox2dWidth();
         for (; x < maxX; x++) {
             int y = MathUtils.floor(worldY - getHalfBox2dHeight());
             float maxY = worldY + getHalfBox2dHeight();
             for (; y < maxY; y++) {
-                blocks.add(world.getBlock(x, y, false));
+                blocks.add(cursor.getBlock(x, y, false));
             }
         }
         return blocks;
@@ -176,13 +213,14 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
      * @return {@code True} if the player would only touch air if stood at the given location
      */
     public boolean wouldOnlyTouchAir(float worldX, float worldY) {
+        WorldCursor cursor = new WorldCursor(world);
         int x = MathUtils.floor(worldX - getHalfBox2dWidth());
         float maxX = worldX + getHalfBox2dWidth();
         for (; x < maxX; x++) {
             int y = MathUtils.floor(worldY - getHalfBox2dHeight());
             float maxY = worldY + getHalfBox2dHeight();
             for (; y < maxY; y++) {
-                if (!world.isAir(x, y)) {
+                if (!cursor.isAir(x, y)) {
                     return false;
                 }
             }
@@ -208,7 +246,7 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
     public ObjectSet<Entity> touchingEntities(float worldX, float worldY) {
         ObjectSet<Entity> entities = new ObjectSet<>();
 
-        for (Entity entity : world.getEntities()) {
+        for (Entity entity : world.getEntityIndex().query(worldX, worldY, worldX, worldY)) {
             //ignore entities we do not collide with and self
             if (entity == this || (getFilter().maskBits & entity.getFilter().categoryBits) == 0 ||
                 (entity.getFilter().maskBits & getFilter().categoryBits) == 0) {
@@ -259,6 +297,7 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
     @Override
     public void tick() {
         updatePos();
+        world.getEntityIndex().update(this);
     }
 
     /**
@@ -305,6 +344,18 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
         return velCache;
     }
 
+    /**
+     * Set the velocity of this entity
+     *
+     * @param velX
+     *     The new horizontal velocity
+     * @param velY
+     *     The new vertical velocity
+     */
+    public void setVelocity(float velX, float velY) {
+        updateBody(body -> body.setLinearVelocity(velX, velY));
+    }
+
     /**
      * @return Block x-coordinate of this entity
      */
@@ -319,17 +370,38 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
         return MathUtils.floor(posCache.y);
     }
 
+    /**
+     * @return The body of this entity, {@code null} until it has been created at the start of the next tick or if the
+     * entity is disposed. Use {@link #updateBody(Consumer)} to change it
+     */
+    @Nullable
     public Body getBody() {
         return body;
     }
 
+    /**
+     * Change the body of this entity at the start of the next tick, see {@link WorldBody#postBox2dRunnable(Runnable)}.
+     * This method can be called from any thread
+     *
+     * @param action
+     *     The change to make, not called if the entity no longer has a body
+     */
+    public void updateBody(@NotNull Consumer<Body> action) {
+        world.getWorldBody().postBox2dRunnable(() -> {
+            Body current = body;
+            if (current != null) {
+                action.accept(current);
+            }
+        });
+    }
+
     public boolean isFlying() {
         return flying;
     }
 
     public void setFlying(boolean flying) {
         this.flying = flying;
-        synchronized (WorldRender.BOX2D_LOCK) {
+        updateBody(body -> {
             if (flying) {
                 body.setLinearVelocity(0, 0);
                 body.setGravityScale(0);
@@ -338,7 +410,7 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
                 body.setGravityScale(1);
                 body.setAwake(true);
             }
-        }
+        });
     }
 
     public World getWorld() {
@@ -369,13 +441,11 @@ public abstract class Entity implements Ticking, Disposable, ContactHandler {
      */
     public synchronized void setFilter(Filter filter) {
         this.filter = filter;
-        synchronized (WorldRender.BOX2D_LOCK) {
-            if (body != null) {
-                for (Fixture fixture : body.getFixtureList()) {
-                    fixture.setFilterData(filter);
-                }
+        updateBody(body -> {
+            for (Fixture fixture : body.getFixtureList()) {
+                fixture.setFilterData(filter);
             }
-        }
+        });
     }
 
     @Override
@@ -1,17 +1,78 @@
 package no.elg.infiniteBootleg.world.subgrid;
 
+import com.google.common.base.Preconditions;
+import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.subgrid.enitites.Door;
 import no.elg.infiniteBootleg.world.subgrid.enitites.FallingBlock;
 import no.elg.infiniteBootleg.world.subgrid.enitites.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * The types of entities. The ordinal of a type is saved with the chunk its entities are in, new types must therefore
+ * be added last.
+ */
 public enum EntityType {
 
-    FALLING_BLOCK(FallingBlock.class),
-    PLAYER(Player.class);
+    FALLING_BLOCK(FallingBlock.class, FallingBlock::load),
+    PLAYER(Player.class, null),
+    DOOR(Door.class, Door::load);
 
-    private Class<? extends Entity> impl;
+    private final Class<? extends Entity> impl;
+    private final Loader loader;
 
-    EntityType(@NotNull Class<? extends Entity> impl) {
+    EntityType(@NotNull Class<? extends Entity> impl, @Nullable Loader loader) {
         this.impl = impl;
+        this.loader = loader;
+    }
+
+    /**
+     * @return The type of the given entity or {@code null} if it has no type
+     */
+    @Nullable
+    public static EntityType fromEntity(@NotNull Entity entity) {
+        for (EntityType type : values()) {
+            if (type.impl == entity.getClass()) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return If entities of this type are saved with the chunk they are in
+     */
+    public boolean isPersistent() {
+        return loader != null;
+    }
+
+    /**
+     * Spawn a saved entity of this type without validating its location
+     *
+     * @param world
+     *     The world to spawn the entity in
+     * @param worldX
+     *     The saved x coordinate of the center of the entity
+     * @param worldY
+     *     The saved y coordinate of the center of the entity
+     * @param state
+     *     The state written by {@link Entity#writeState(java.io.DataOutput)}
+     *
+     * @return The new entity
+     */
+    @NotNull
+    public Entity load(@NotNull World world, float worldX, float worldY, @NotNull DataInput state) throws IOException {
+        Preconditions.checkState(loader != null, "Entities of type " + this + " are not saved");
+        return loader.load(world, worldX, worldY, state);
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+
+        @NotNull
+        Entity load(@NotNull World world, float worldX, float worldY, @NotNull DataInput state) throws IOException;
     }
 }
@@ -15,6 +15,10 @@ public abstract class MaterialEntity extends Entity implements Removable {
         super(world, worldX, worldY, center);
     }
 
+    protected MaterialEntity(@NotNull World world, float worldX, float worldY, boolean center, boolean validate) {
+        super(world, worldX, worldY, center, validate);
+    }
+
     public abstract Material getMaterial();
 
     @Override
@@ -6,7 +6,6 @@ import com.badlogic.gdx.physics.box2d.ContactListener;
 import com.badlogic.gdx.physics.box2d.Manifold;
 import no.elg.infiniteBootleg.world.World;
 import no.elg.infiniteBootleg.world.render.WorldRender;
-import no.elg.infiniteBootleg.world.subgrid.Entity;
 import org.jetbrains.annotations.NotNull;
 
 public class ContactManager implements ContactListener {
@@ -19,23 +18,22 @@ public class ContactManager implements ContactListener {
 
     @Override
     public void beginContact(Contact contact) {
-        synchronized (WorldRender.BOX2D_LOCK) {
-            for (Entity entity : world.getEntities()) {
-                if (contact.getFixtureB().getBody() == entity.getBody()) {
-                    ((ContactHandler) entity).contact(ContactType.BEGIN_CONTACT, contact);
-                }
-            }
-        }
+        dispatch(ContactType.BEGIN_CONTACT, contact);
     }
 
     @Override
     public void endContact(Contact contact) {
-        synchronized (WorldRender.BOX2D_LOCK) {
-            for (Entity entity : world.getEntities()) {
-                if (contact.getFixtureB().getBody() == entity.getBody()) {
-                    ((ContactHandler) entity).contact(ContactType.END_CONTACT, contact);
-                }
-            }
+        dispatch(ContactType.END_CONTACT, contact);
+    }
+
+    /**
+     * Notify the handler of the body of fixture B, the handler of a body is its user data. Contacts are only reported
+     * on the ticker thread while it holds {@link WorldRender#BOX2D_LOCK}
+     */
+    private void dispatch(@NotNull ContactType type, @NotNull Contact contact) {
+        Object handler = contact.getFixtureB().getBody().getUserData();
+        if (handler instanceof ContactHandler) {
+            ((ContactHandler) handler).contact(type, contact);
         }
     }
 
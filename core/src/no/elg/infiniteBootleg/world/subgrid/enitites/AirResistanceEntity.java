@@ -2,7 +2,6 @@ package no.elg.infiniteBootleg.world.subgrid.enitites;
 
 import com.badlogic.gdx.math.Vector2;
 import no.elg.infiniteBootleg.world.World;
-import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
 import org.jetbrains.annotations.NotNull;
 
@@ -49,8 +48,6 @@ public abstract class AirResistanceEntity extends Entity {
             return;
         }
 
-        synchronized (WorldRender.BOX2D_LOCK) {
-            getBody().applyForceToCenter(appliedDrag, true);
-        }
+        updateBody(body -> body.applyForceToCenter(appliedDrag, true));
     }
 }
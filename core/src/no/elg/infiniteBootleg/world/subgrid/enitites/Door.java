@@ -9,6 +9,8 @@ import no.elg.infiniteBootleg.world.subgrid.MaterialEntity;
 import no.elg.infiniteBootleg.world.subgrid.contact.ContactType;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.DataInput;
+
 import static no.elg.infiniteBootleg.world.Block.BLOCK_SIZE;
 
 /**
@@ -25,7 +27,11 @@ public class Door extends MaterialEntity {
     private int open;
 
     public Door(@NotNull World world, float worldX, float worldY) {
-        super(world, worldX, worldY);
+        this(world, worldX, worldY, true, true);
+    }
+
+    private Door(@NotNull World world, float worldX, float worldY, boolean center, boolean validate) {
+        super(world, worldX, worldY, center, validate);
         if (Main.renderGraphic) {
             openDoorRegion = Main.inst().getEntityAtlas().findRegion(OPEN_DOOR_REGION_NAME);
             closedDoorRegion = Main.inst().getEntityAtlas().findRegion(CLOSED_DOOR_REGION_NAME);
@@ -33,6 +39,15 @@ public class Door extends MaterialEntity {
         open = 0;
     }
 
+    /**
+     * @see no.elg.infiniteBootleg.world.subgrid.EntityType.Loader
+     */
+    @NotNull
+    public static Door load(@NotNull World world, float worldX, float worldY, @NotNull DataInput state) {
+        //whether the door is open is given by the entities touching it, which are restored on their own
+        return new Door(world, worldX, worldY, false, false);
+    }
+
     @Override
     public Material getMaterial() {
         return Material.DOOR;
@@ -9,11 +9,14 @@ import com.badlogic.gdx.physics.box2d.PolygonShape;
 import no.elg.infiniteBootleg.util.CoordUtil;
 import no.elg.infiniteBootleg.world.Material;
 import no.elg.infiniteBootleg.world.World;
-import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
 import no.elg.infiniteBootleg.world.subgrid.contact.ContactType;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import static no.elg.infiniteBootleg.world.Block.BLOCK_SIZE;
 
 public class FallingBlock extends Entity {
@@ -22,13 +25,38 @@ public class FallingBlock extends Entity {
     private final TextureRegion region;
 
     private boolean crashed;
+    private boolean waitingForChunk;
 
     public FallingBlock(@NotNull World world, float worldX, float worldY, @NotNull Material material) {
-        super(world, worldX + 0.5f, worldY + 0.5f, false);
+        this(world, worldX + 0.5f, worldY + 0.5f, material, true);
+    }
+
+    private FallingBlock(@NotNull World world, float worldX, float worldY, @NotNull Material material,
+                         boolean validate) {
+        super(world, worldX, worldY, false, validate);
         this.material = material;
         region = new TextureRegion(material.getTextureRegion());
     }
 
+    /**
+     * @see no.elg.infiniteBootleg.world.subgrid.EntityType.Loader
+     */
+    @NotNull
+    public static FallingBlock load(@NotNull World world, float worldX, float worldY, @NotNull DataInput state)
+        throws IOException {
+        int ordinal = state.readUnsignedByte();
+        Material[] materials = Material.values();
+        if (ordinal >= materials.length) {
+            throw new IOException("Unknown material ordinal " + ordinal);
+        }
+        return new FallingBlock(world, worldX, worldY, materials[ordinal], false);
+    }
+
+    @Override
+    public void writeState(@NotNull DataOutput out) throws IOException {
+        out.writeByte(material.ordinal());
+    }
+
     @Override
     protected void createFixture(@NotNull Body body) {
         PolygonShape box = new PolygonShape();
@@ -40,15 +68,23 @@ public class FallingBlock extends Entity {
 
     @Override
     public void tickRare() {
-        //Unload this entity if it entered an unloaded chunk
-        //TODO do not _remove_ this entity, just save it to the unloaded chunk
+        //Freeze this entity while the chunk it entered is loading, it is saved with that chunk when it is unloaded
         int chunkX = CoordUtil.worldToChunk(getBlockX());
         int chunkY = CoordUtil.worldToChunk(getBlockY());
-        if (!getWorld().isChunkLoaded(chunkX, chunkY)) {
-            Gdx.app.postRunnable(() -> getWorld().removeEntity(this));
+        if (!waitingForChunk && !getWorld().isChunkLoaded(chunkX, chunkY)) {
+            waitingForChunk = true;
+            setActive(false);
+            getWorld().loadChunk(chunkX, chunkY).whenComplete((chunk, ex) -> {
+                setActive(true);
+                waitingForChunk = false;
+            });
         }
     }
 
+    private void setActive(boolean active) {
+        updateBody(body -> body.setActive(active));
+    }
+
     @Override
     public void contact(@NotNull ContactType type, @NotNull Contact contact) {
         if (!crashed && type == ContactType.BEGIN_CONTACT) {
@@ -66,9 +102,7 @@ public class FallingBlock extends Entity {
 //                    //TODO drop as an item
 //                }
 
-                synchronized (WorldRender.BOX2D_LOCK) {
-                    world.removeEntity(this);
-                }
+                world.removeEntity(this);
             });
         }
     }
@@ -3,10 +3,8 @@ package no.elg.infiniteBootleg.world.subgrid.enitites;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Filter;
-import com.badlogic.gdx.physics.box2d.Fixture;
 import no.elg.infiniteBootleg.world.Block;
 import no.elg.infiniteBootleg.world.World;
-import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.Entity;
 import no.elg.infiniteBootleg.world.subgrid.Removable;
 import org.jetbrains.annotations.NotNull;
@@ -32,16 +30,8 @@ public class GenericEntity extends Entity implements Removable {
         this.width = width * Block.BLOCK_SIZE;
         this.height = height * Block.BLOCK_SIZE;
 
-        //make sure the width and height is correct
-        synchronized (WorldRender.BOX2D_LOCK) {
-            synchronized (this) {
-                for (Fixture fixture : getBody().getFixtureList()) {
-                    getBody().destroyFixture(fixture);
-                }
-            }
-            createFixture(getBody());
-            setFilter(filter);
-        }
+        //the body is created at the next tick, when the width and height are known
+        setFilter(filter);
     }
 
     @Override
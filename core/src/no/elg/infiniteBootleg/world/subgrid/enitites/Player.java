@@ -9,6 +9,7 @@ import no.elg.infiniteBootleg.Main;
 import no.elg.infiniteBootleg.input.EntityControls;
 import no.elg.infiniteBootleg.input.KeyboardControls;
 import no.elg.infiniteBootleg.world.World;
+import no.elg.infiniteBootleg.world.render.WorldRender;
 import no.elg.infiniteBootleg.world.subgrid.LivingEntity;
 import org.jetbrains.annotations.NotNull;
 
@@ -27,8 +28,10 @@ public class Player extends LivingEntity {
         region = new TextureRegion(Main.inst().getEntityAtlas().findRegion(PLAYER_REGION_NAME));
         controls = new KeyboardControls(world.getRender(), this);
 
-        torchLight = new ConeLight(Main.inst().getWorld().getRender().getRayHandler(), 64, Color.TAN, 48, 5, 5, 0, 30);
-        torchLight.setStaticLight(true);
+        synchronized (WorldRender.LIGHT_LOCK) {
+            torchLight = new ConeLight(world.getRender().getRayHandler(), 64, Color.TAN, 48, 5, 5, 0, 30);
+            torchLight.setStaticLight(true);
+        }
     }
 
     @Override
@@ -51,8 +54,14 @@ public class Player extends LivingEntity {
         super.tick();
         Vector2 pos = super.getPosition();
         float angle = Main.inst().getMouse().cpy().sub(pos).angle();
-        torchLight.setDirection(angle);
-        torchLight.setPosition(pos);
+        synchronized (WorldRender.LIGHT_LOCK) {
+            if (angle == torchLight.getDirection() && pos.equals(torchLight.getPosition())) {
+                return;
+            }
+            torchLight.setDirection(angle);
+            torchLight.setPosition(pos);
+        }
+        getWorld().getRender().markLightsDirty();
     }
 
     @Override
@@ -64,6 +73,9 @@ public class Player extends LivingEntity {
     @Override
     public void dispose() {
         super.dispose();
-        torchLight.dispose();
+        synchronized (WorldRender.LIGHT_LOCK) {
+            torchLight.remove();
+        }
+        getWorld().getRender().markLightsDirty();
     }
 }
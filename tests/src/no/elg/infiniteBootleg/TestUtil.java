@@ -0,0 +1,19 @@
+package no.elg.infiniteBootleg;
+
+/**
+ * @author Elg
+ */
+public final class TestUtil {
+
+    private TestUtil() { }
+
+    /**
+     * Create the main instance without graphics if it does not exist, needed by anything that logs
+     */
+    public static void createMain() {
+        Main.renderGraphic = false;
+        if (Main.inst() == null) {
+            new Main(true);
+        }
+    }
+}
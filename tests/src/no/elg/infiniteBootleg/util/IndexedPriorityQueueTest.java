@@ -0,0 +1,88 @@
+package no.elg.infiniteBootleg.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Elg
+ */
+public class IndexedPriorityQueueTest {
+
+    private IndexedPriorityQueue<Integer> queue;
+
+    @Before
+    public void setUp() {
+        //small capacity so the queue has to grow
+        queue = new IndexedPriorityQueue<>(2);
+    }
+
+    @Test
+    public void pollsInPriorityOrder() {
+        Random random = new Random(42);
+        double[] priorities = new double[1000];
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = random.nextDouble();
+            assertTrue(queue.offer(i, priorities[i]));
+        }
+        assertEquals(priorities.length, queue.size());
+
+        double last = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < priorities.length; i++) {
+            int element = queue.poll();
+            assertTrue(priorities[element] >= last);
+            last = priorities[element];
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void offerOnlyLowersPriority() {
+        queue.offer(1, 1);
+        queue.offer(2, 2);
+        assertFalse(queue.offer(2, 3));
+        assertEquals(1, (int) queue.peek());
+
+        assertTrue(queue.offer(2, 0));
+        assertEquals(2, queue.size());
+        assertEquals(2, (int) queue.poll());
+        assertEquals(1, (int) queue.poll());
+    }
+
+    @Test
+    public void removeKeepsOrder() {
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i, i);
+        }
+        assertTrue(queue.remove(0));
+        assertTrue(queue.remove(5));
+        assertFalse(queue.remove(5));
+        assertFalse(queue.contains(5));
+        assertTrue(queue.contains(6));
+
+        int[] expected = {1, 2, 3, 4, 6, 7, 8, 9};
+        for (int element : expected) {
+            assertEquals(element, (int) queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void clear() {
+        queue.offer(1, 1);
+        queue.offer(2, 2);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.contains(1));
+        assertTrue(queue.offer(1, 5));
+        assertEquals(1, (int) queue.poll());
+    }
+}
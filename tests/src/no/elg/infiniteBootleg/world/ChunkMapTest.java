@@ -0,0 +1,155 @@
+package no.elg.infiniteBootleg.world;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Elg
+ */
+public class ChunkMapTest {
+
+    /**
+     * Chunks put are in [-RANGE, RANGE) in both directions, enough to rehash the map several times
+     */
+    private static final int RANGE = 16;
+
+    private ChunkMap map;
+    private Chunk chunk;
+    private Chunk other;
+
+    @Before
+    public void setUp() {
+        map = new ChunkMap();
+        chunk = mock(Chunk.class);
+        other = mock(Chunk.class);
+    }
+
+    private void putAll(Chunk chunk) {
+        for (int x = -RANGE; x < RANGE; x++) {
+            for (int y = -RANGE; y < RANGE; y++) {
+                assertNull(map.put(x, y, chunk));
+            }
+        }
+    }
+
+    @Test
+    public void putAndGet() {
+        assertNull(map.get(1, -2));
+        assertNull(map.put(1, -2, chunk));
+        assertSame(chunk, map.get(1, -2));
+        assertTrue(map.containsKey(1, -2));
+        assertFalse(map.containsKey(-2, 1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putReplacesAndReturnsPrevious() {
+        map.put(3, 4, chunk);
+        assertSame(chunk, map.put(3, 4, other));
+        assertSame(other, map.get(3, 4));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void remove() {
+        map.put(3, 4, chunk);
+        assertSame(chunk, map.remove(3, 4));
+        assertNull(map.get(3, 4));
+        assertNull(map.remove(3, 4));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void chunksSurviveRehash() {
+        putAll(chunk);
+        assertEquals(4 * RANGE * RANGE, map.size());
+        for (int x = -RANGE; x < RANGE; x++) {
+            for (int y = -RANGE; y < RANGE; y++) {
+                assertSame("Chunk " + x + "," + y, chunk, map.get(x, y));
+            }
+        }
+        assertNull(map.get(RANGE, RANGE));
+    }
+
+    @Test
+    public void lookupsProbePastRemovedSlots() {
+        putAll(chunk);
+        //removing every other chunk leaves tombstones in the middle of probe sequences
+        for (int x = -RANGE; x < RANGE; x++) {
+            for (int y = -RANGE; y < RANGE; y++) {
+                if (((x + y) & 1) == 0) {
+                    assertSame(chunk, map.remove(x, y));
+                }
+            }
+        }
+        assertEquals(2 * RANGE * RANGE, map.size());
+        for (int x = -RANGE; x < RANGE; x++) {
+            for (int y = -RANGE; y < RANGE; y++) {
+                if (((x + y) & 1) == 0) {
+                    assertNull(map.get(x, y));
+                }
+                else {
+                    assertSame("Chunk " + x + "," + y, chunk, map.get(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removedSlotsAreReused() {
+        //repeatedly putting and removing must not fill the table with tombstones
+        for (int i = 0; i < 100; i++) {
+            putAll(chunk);
+            for (int x = -RANGE; x < RANGE; x++) {
+                for (int y = -RANGE; y < RANGE; y++) {
+                    map.remove(x, y);
+                }
+            }
+        }
+        assertEquals(0, map.size());
+        map.put(0, 0, other);
+        assertSame(other, map.get(0, 0));
+    }
+
+    @Test
+    public void iteratorRemoveRemovesFromMap() {
+        putAll(chunk);
+        map.put(RANGE, RANGE, other);
+        int seen = 0;
+        for (Iterator<Chunk> iterator = map.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == other) {
+                iterator.remove();
+            }
+            seen++;
+        }
+        assertEquals(4 * RANGE * RANGE + 1, seen);
+        assertNull(map.get(RANGE, RANGE));
+        assertEquals(4 * RANGE * RANGE, map.size());
+        assertEquals(4 * RANGE * RANGE, map.values().size());
+    }
+
+    @Test
+    public void iteratorRemoveKeepsReplacedChunk() {
+        map.put(0, 0, chunk);
+        Iterator<Chunk> iterator = map.values().iterator();
+        assertSame(chunk, iterator.next());
+        map.put(0, 0, other);
+        iterator.remove();
+        assertSame(other, map.get(0, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iteratorRemoveBeforeNext() {
+        map.put(0, 0, chunk);
+        map.values().iterator().remove();
+    }
+}
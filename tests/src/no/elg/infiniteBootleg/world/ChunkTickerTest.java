@@ -0,0 +1,45 @@
+package no.elg.infiniteBootleg.world;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Elg
+ */
+public class ChunkTickerTest {
+
+    /**
+     * Chunks checked are in [-RANGE, RANGE) in both directions, to include negative coordinates
+     */
+    private static final int RANGE = 8;
+
+    @Test
+    public void colorIsInRange() {
+        for (int x = -RANGE; x < RANGE; x++) {
+            for (int y = -RANGE; y < RANGE; y++) {
+                int color = ChunkTicker.colorOf(x, y);
+                assertTrue("Colour " + color + " of " + x + "," + y, color >= 0 && color < ChunkTicker.COLORS);
+            }
+        }
+    }
+
+    @Test
+    public void sameColorNeverSharesNeighbour() {
+        for (int x1 = -RANGE; x1 < RANGE; x1++) {
+            for (int y1 = -RANGE; y1 < RANGE; y1++) {
+                for (int x2 = -RANGE; x2 < RANGE; x2++) {
+                    for (int y2 = -RANGE; y2 < RANGE; y2++) {
+                        if ((x1 == x2 && y1 == y2) || ChunkTicker.colorOf(x1, y1) != ChunkTicker.colorOf(x2, y2)) {
+                            continue;
+                        }
+                        //the chunks and their neighbours overlap when they are at most two chunks apart
+                        boolean shareNeighbour = Math.abs(x1 - x2) <= 2 && Math.abs(y1 - y2) <= 2;
+                        assertTrue("Chunks " + x1 + "," + y1 + " and " + x2 + "," + y2 + " share a neighbour",
+                                   !shareNeighbour);
+                    }
+                }
+            }
+        }
+    }
+}
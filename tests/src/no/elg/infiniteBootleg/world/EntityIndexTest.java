@@ -0,0 +1,84 @@
+package no.elg.infiniteBootleg.world;
+
+import no.elg.infiniteBootleg.world.subgrid.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static no.elg.infiniteBootleg.world.Chunk.CHUNK_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Elg
+ */
+public class EntityIndexTest {
+
+    private EntityIndex index;
+
+    @Before
+    public void setUp() {
+        index = new EntityIndex();
+    }
+
+    private static Entity entityAt(AtomicInteger blockX) {
+        Entity entity = mock(Entity.class);
+        when(entity.getBlockX()).thenAnswer(invocation -> blockX.get());
+        when(entity.getBlockY()).thenReturn(0);
+        return entity;
+    }
+
+    @Test
+    public void entityMovesBetweenBuckets() {
+        AtomicInteger blockX = new AtomicInteger();
+        Entity entity = entityAt(blockX);
+        index.add(entity);
+        assertSame(entity, index.getEntitiesInChunk(0, 0).first());
+
+        blockX.set(CHUNK_SIZE);
+        index.update(entity);
+        assertEquals(0, index.getEntitiesInChunk(0, 0).size);
+        assertSame(entity, index.getEntitiesInChunk(1, 0).first());
+        assertEquals(1, index.getBucketCount());
+
+        index.remove(entity);
+        assertEquals(0, index.getEntitiesInChunk(1, 0).size);
+        assertEquals(0, index.getBucketCount());
+    }
+
+    @Test
+    public void updateOfUntrackedEntityIsIgnored() {
+        Entity entity = entityAt(new AtomicInteger());
+        index.update(entity);
+        assertEquals(0, index.getBucketCount());
+    }
+
+    @Test
+    public void removedEntityIsNotLeftBehindByConcurrentUpdate() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            AtomicInteger blockX = new AtomicInteger();
+            Entity entity = entityAt(blockX);
+            index.add(entity);
+
+            AtomicBoolean removed = new AtomicBoolean();
+            Thread mover = new Thread(() -> {
+                //keep moving the entity between two chunks until it has been removed
+                while (!removed.get()) {
+                    blockX.set(blockX.get() == 0 ? CHUNK_SIZE : 0);
+                    index.update(entity);
+                }
+            });
+            mover.start();
+            Thread.yield();
+            index.remove(entity);
+            removed.set(true);
+            mover.join();
+
+            assertEquals("Entity left in the index after " + i + " removals", 0, index.getBucketCount());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package no.elg.infiniteBootleg.world;
+
+import no.elg.infiniteBootleg.Main;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Elg
+ */
+public class PalettedBlockStorageTest {
+
+    private static Material[] terrain;
+
+    @BeforeClass
+    public static void beforeClass() {
+        //do not load any textures
+        Main.renderGraphic = false;
+        terrain = new Material[]{Material.STONE, Material.DIRT, Material.GRASS, Material.AIR};
+    }
+
+    private static long allocatedBytes(ThreadMXBean bean) {
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void readingMaterialsDoesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        PalettedBlockStorage storage = new PalettedBlockStorage();
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            storage.set(i, terrain[i % terrain.length]);
+        }
+
+        int passes = 100;
+        int sum = 0;
+        long before = allocatedBytes(bean);
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+                sum += storage.get(i).ordinal();
+            }
+        }
+        long allocated = allocatedBytes(bean) - before;
+
+        assertEquals(passes * (PalettedBlockStorage.SIZE / terrain.length) *
+                     (Material.STONE.ordinal() + Material.DIRT.ordinal() + Material.GRASS.ordinal() +
+                      Material.AIR.ordinal()), sum);
+        //a block per read would be at least 16 bytes per block
+        assertTrue("Reading " + passes + " chunks allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void addingToPaletteDoesNotChangeSnapshot() {
+        PalettedBlockStorage storage = new PalettedBlockStorage();
+        storage.set(0, Material.STONE);
+        storage.set(1, Material.DIRT);
+        assertEquals(2, storage.getBitsPerBlock());
+        PalettedBlockStorage.Snapshot snapshot = storage.snapshot();
+
+        //fits in the current palette, so the index array is not widened
+        storage.set(0, Material.GRASS);
+
+        assertEquals(2, storage.getBitsPerBlock());
+        assertEquals(4, storage.getPaletteSize());
+        assertEquals(Material.GRASS, storage.get(0));
+        assertEquals(Material.STONE, snapshot.get(0));
+        assertEquals(Material.DIRT, snapshot.get(1));
+    }
+
+    /**
+     * @return The smallest of 0, 1, 2, 4 and 8 bits that can index the given number of materials
+     */
+    private static int expectedBits(int materials) {
+        int bits = 0;
+        while (1 << bits < materials) {
+            bits = bits == 0 ? 1 : bits * 2;
+        }
+        return bits;
+    }
+
+    @Test
+    public void growingKeepsContent() {
+        PalettedBlockStorage storage = new PalettedBlockStorage();
+        assertEquals(0, storage.getBitsPerBlock());
+        assertTrue(storage.isAllAir());
+
+        Material[] materials = Material.values();
+        for (int m = 1; m < materials.length; m++) {
+            //every block gets a material, each new material is written to one more block
+            for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+                if (i % materials.length == m) {
+                    storage.set(i, materials[m]);
+                }
+            }
+            assertEquals("Bits with " + (m + 1) + " materials", expectedBits(m + 1), storage.getBitsPerBlock());
+            assertEquals(m + 1, storage.getPaletteSize());
+            for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+                int expected = i % materials.length;
+                assertEquals("Block " + i, expected <= m ? materials[expected] : Material.AIR, storage.get(i));
+            }
+        }
+        assertFalse(storage.isAllAir());
+    }
+
+    @Test
+    public void snapshotIsCopiedOnWrite() {
+        PalettedBlockStorage storage = new PalettedBlockStorage();
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            storage.set(i, terrain[i % terrain.length]);
+        }
+        PalettedBlockStorage.Snapshot snapshot = storage.snapshot();
+        byte[] before = storage.toBytes();
+
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            storage.set(i, Material.BRICK);
+        }
+
+        assertArrayEquals(before, snapshot.toBytes());
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            assertEquals(Material.BRICK, storage.get(i));
+        }
+    }
+
+    @Test
+    public void clearResetsPalette() {
+        PalettedBlockStorage storage = new PalettedBlockStorage();
+        storage.set(0, Material.STONE);
+        storage.set(1, Material.DIRT);
+        storage.clear();
+        assertTrue(storage.isAllAir());
+        assertEquals(1, storage.getPaletteSize());
+        assertEquals(0, storage.getBitsPerBlock());
+        assertEquals(Material.AIR, storage.get(0));
+    }
+
+    @Test
+    public void bytesRoundTrip() {
+        PalettedBlockStorage storage = new PalettedBlockStorage();
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            storage.set(i, terrain[i % terrain.length]);
+        }
+        PalettedBlockStorage copy = new PalettedBlockStorage();
+        copy.fromBytes(storage.toBytes());
+        assertArrayEquals(storage.toBytes(), copy.toBytes());
+    }
+}
@@ -0,0 +1,187 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import no.elg.infiniteBootleg.Main;
+import no.elg.infiniteBootleg.world.Material;
+import no.elg.infiniteBootleg.world.PalettedBlockStorage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Elg
+ */
+public class ChunkCodecTest {
+
+    private static IntFunction<Material> striped;
+
+    @BeforeClass
+    public static void beforeClass() {
+        //do not load any textures
+        Main.renderGraphic = false;
+        Material[] materials = {Material.STONE, Material.DIRT, Material.AIR};
+        striped = index -> materials[(index / 3) % materials.length];
+    }
+
+    /**
+     * @return If the body of the given encoded chunk is compressed
+     */
+    private static boolean isCompressed(byte[] encoded) {
+        //the flags follow the magic and version
+        return (encoded[3] & 1) != 0;
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private static void assertBlocks(IntFunction<Material> expected, PalettedBlockStorage actual) {
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            assertEquals("Block " + i, expected.apply(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void compressedChunkIsDecodedFromDirectBuffer() {
+        byte[] state = {1, 2, 3, 4};
+        byte[] encoded = ChunkCodec.encode(striped, state);
+        assertTrue(isCompressed(encoded));
+        PalettedBlockStorage blocks = new PalettedBlockStorage();
+        ByteBuffer decodedState = ChunkCodec.decode(direct(encoded), blocks);
+
+        assertBlocks(striped, blocks);
+        byte[] actualState = new byte[decodedState.remaining()];
+        decodedState.get(actualState);
+        assertArrayEquals(state, actualState);
+    }
+
+    @Test
+    public void uncompressedChunkIsDecodedFromDirectBuffer() {
+        IntFunction<Material> stone = index -> Material.STONE;
+        byte[] encoded = ChunkCodec.encode(stone, new byte[]{7});
+        assertFalse(isCompressed(encoded));
+        PalettedBlockStorage blocks = new PalettedBlockStorage();
+        ByteBuffer decodedState = ChunkCodec.decode(direct(encoded), blocks);
+
+        assertBlocks(stone, blocks);
+        assertEquals(1, decodedState.remaining());
+        assertEquals(7, decodedState.get());
+    }
+
+    @Test
+    public void chunkWithoutStateRoundTrips() {
+        PalettedBlockStorage blocks = new PalettedBlockStorage();
+        assertNull(ChunkCodec.decode(ByteBuffer.wrap(ChunkCodec.encode(striped)), blocks));
+        assertBlocks(striped, blocks);
+    }
+
+    @Test
+    public void decodingReplacesPreviousContent() {
+        PalettedBlockStorage blocks = new PalettedBlockStorage();
+        for (int i = 0; i < PalettedBlockStorage.SIZE; i++) {
+            blocks.set(i, Material.BRICK);
+        }
+        ChunkCodec.decode(ByteBuffer.wrap(ChunkCodec.encode(striped)), blocks);
+        assertBlocks(striped, blocks);
+    }
+
+    @Test
+    public void legacyChunkIsDecoded() {
+        byte[] legacy = new byte[PalettedBlockStorage.SIZE];
+        for (int i = 0; i < legacy.length; i++) {
+            legacy[i] = (byte) striped.apply(i).ordinal();
+        }
+        PalettedBlockStorage blocks = new PalettedBlockStorage();
+        assertNull(ChunkCodec.decode(ByteBuffer.wrap(legacy), blocks));
+        assertBlocks(striped, blocks);
+    }
+
+    private static void assertRejected(byte[] encoded) {
+        try {
+            ChunkCodec.decode(ByteBuffer.wrap(encoded), new PalettedBlockStorage());
+            fail("Decoded an invalid chunk");
+        } catch (IllegalArgumentException expected) {
+            //expected
+        }
+    }
+
+    @Test
+    public void corruptBodyIsRejected() {
+        byte[] encoded = ChunkCodec.encode(striped, new byte[]{1, 2, 3});
+        encoded[encoded.length - 1] ^= 1;
+        assertRejected(encoded);
+    }
+
+    @Test
+    public void wrongChecksumIsRejected() {
+        byte[] encoded = ChunkCodec.encode(index -> Material.STONE);
+        //the checksum follows the magic, version and flags
+        encoded[4] ^= 1;
+        assertRejected(encoded);
+    }
+
+    @Test
+    public void unsupportedVersionIsRejected() {
+        byte[] encoded = ChunkCodec.encode(striped);
+        encoded[2] = ChunkCodec.VERSION + 1;
+        assertRejected(encoded);
+    }
+
+    @Test
+    public void truncatedChunkIsRejected() {
+        byte[] encoded = ChunkCodec.encode(striped);
+        assertRejected(Arrays.copyOf(encoded, encoded.length / 2));
+        assertRejected(Arrays.copyOf(encoded, 3));
+    }
+
+    /**
+     * @return A chunk that is encoded to exactly as many bytes as a chunk in the old format
+     */
+    private static byte[] encodeToLegacySize() {
+        Random random = new Random(42);
+        for (int stateLength = 1; stateLength < PalettedBlockStorage.SIZE; stateLength++) {
+            //random state does not compress, so its length controls the length of the chunk
+            byte[] state = new byte[stateLength];
+            random.nextBytes(state);
+            byte[] encoded = ChunkCodec.encode(striped, state);
+            if (encoded.length == PalettedBlockStorage.SIZE) {
+                return encoded;
+            }
+        }
+        throw new AssertionError("No state gives a chunk of " + PalettedBlockStorage.SIZE + " bytes");
+    }
+
+    @Test
+    public void encodedChunkOfLegacySizeIsNotLegacy() {
+        PalettedBlockStorage blocks = new PalettedBlockStorage();
+        assertNotNull(ChunkCodec.decode(ByteBuffer.wrap(encodeToLegacySize()), blocks));
+        assertBlocks(striped, blocks);
+    }
+
+    @Test
+    public void corruptChunkOfLegacySizeIsNotLegacy() {
+        byte[] encoded = encodeToLegacySize();
+        encoded[encoded.length - 1] ^= 1;
+        assertRejected(encoded);
+    }
+
+    @Test
+    public void legacySizedUnknownMaterialsAreRejected() {
+        byte[] legacy = new byte[PalettedBlockStorage.SIZE];
+        legacy[PalettedBlockStorage.SIZE - 1] = (byte) Material.values().length;
+        assertRejected(legacy);
+    }
+}
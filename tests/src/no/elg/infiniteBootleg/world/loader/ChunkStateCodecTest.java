@@ -0,0 +1,82 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import no.elg.infiniteBootleg.world.Chunk;
+import no.elg.infiniteBootleg.world.blocks.TickingBlock;
+import no.elg.infiniteBootleg.world.subgrid.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Elg
+ */
+public class ChunkStateCodecTest {
+
+    private Chunk chunk;
+    private TickingBlock block;
+    private byte[] written;
+    private byte[] read;
+
+    @Before
+    public void setUp() throws Exception {
+        chunk = mock(Chunk.class);
+        block = mock(TickingBlock.class);
+        when(chunk.getStatefulBlock(3, 5)).thenReturn(block);
+        doAnswer(invocation -> {
+            ((DataOutput) invocation.getArguments()[0]).write(written);
+            return null;
+        }).when(block).writeState(any(DataOutput.class));
+        doAnswer(invocation -> {
+            ((DataInput) invocation.getArguments()[0]).readFully(read);
+            return null;
+        }).when(block).readState(any(DataInput.class));
+    }
+
+    private void assertRoundTrip(byte[] state) {
+        written = state;
+        byte[] encoded = ChunkStateCodec.encode(chunk, Collections.<Entity>emptyList());
+
+        read = new byte[state.length];
+        assertNull(ChunkStateCodec.restoreBlocks(chunk, ByteBuffer.wrap(encoded)));
+        assertArrayEquals(state, read);
+    }
+
+    @Test
+    public void blockStateRoundTrips() {
+        assertRoundTrip(new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void blockStateLargerThanShortRoundTrips() {
+        byte[] state = new byte[70000];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = (byte) i;
+        }
+        assertRoundTrip(state);
+    }
+
+    @Test
+    public void nothingToEncode() {
+        written = new byte[0];
+        assertNull(ChunkStateCodec.encode(chunk, Collections.<Entity>emptyList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedStateIsRejected() {
+        written = new byte[]{1, 2, 3};
+        byte[] encoded = ChunkStateCodec.encode(chunk, Collections.<Entity>emptyList());
+        read = new byte[written.length];
+        ChunkStateCodec.restoreBlocks(chunk, ByteBuffer.wrap(encoded, 0, encoded.length - 2));
+    }
+}
@@ -0,0 +1,72 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author Elg
+ */
+public class RegionFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesSurviveClosingWithoutSync() throws IOException {
+        File file = new File(folder.getRoot(), "r.0.0.bin");
+        byte[] bytes = new byte[3 * RegionFile.SECTOR_SIZE + 7];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        RegionFile region = new RegionFile(file);
+        region.write(1, 2, bytes);
+        region.close();
+
+        RegionFile reopened = new RegionFile(file);
+        assertArrayEquals(bytes, reopened.read(1, 2));
+        reopened.close();
+    }
+
+    @Test
+    public void closingTwiceIsAllowed() throws IOException {
+        RegionFile region = new RegionFile(new File(folder.getRoot(), "r.0.0.bin"));
+        region.write(0, 0, new byte[]{1});
+        region.close();
+        region.close();
+    }
+
+    @Test
+    public void overlappingAndOutOfFileEntriesAreRejected() throws IOException {
+        File file = new File(folder.getRoot(), "r.0.0.bin");
+        byte[] bytes = {1, 2, 3};
+        RegionFile region = new RegionFile(file);
+        region.write(0, 0, bytes);
+        region.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int offset = raf.readInt();
+            raf.readInt();
+            //chunk 1,0 claims the sectors of chunk 0,0
+            raf.writeInt(offset);
+            raf.writeInt(bytes.length);
+            //chunk 2,0 points past the end of the file
+            raf.writeInt((int) (raf.length() / RegionFile.SECTOR_SIZE));
+            raf.writeInt(bytes.length);
+        }
+
+        RegionFile reopened = new RegionFile(file);
+        assertArrayEquals(bytes, reopened.read(0, 0));
+        assertFalse(reopened.has(1, 0));
+        assertFalse(reopened.has(2, 0));
+        reopened.close();
+    }
+}
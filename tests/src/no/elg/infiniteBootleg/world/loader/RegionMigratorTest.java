@@ -0,0 +1,73 @@
+package no.elg.infiniteBootleg.world.loader;
+
+import com.badlogic.gdx.files.FileHandle;
+import no.elg.infiniteBootleg.TestUtil;
+import no.elg.infiniteBootleg.world.World;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Elg
+ */
+public class RegionMigratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private World world;
+    private RegionStorage storage;
+    private FileHandle legacyFolder;
+
+    @BeforeClass
+    public static void beforeClass() {
+        TestUtil.createMain();
+    }
+
+    @Before
+    public void setUp() {
+        FileHandle worldFolder = new FileHandle(folder.getRoot());
+        world = mock(World.class);
+        when(world.worldFolder()).thenReturn(worldFolder);
+        storage = new RegionStorage(world);
+        legacyFolder = worldFolder.child(RegionMigrator.LEGACY_CHUNK_FOLDER);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    public void migratesAndDeletesLegacyFolder() throws IOException {
+        byte[] bytes = {1, 2, 3};
+        legacyFolder.child("3").child("-4").writeBytes(bytes, false);
+
+        assertEquals(1, RegionMigrator.migrate(world, storage));
+        assertFalse(legacyFolder.exists());
+        assertArrayEquals(bytes, storage.read(3, -4));
+    }
+
+    @Test
+    public void skipsEmptyChunkFiles() throws IOException {
+        byte[] bytes = {1, 2, 3};
+        legacyFolder.child("0").child("0").writeBytes(new byte[0], false);
+        legacyFolder.child("0").child("1").writeBytes(bytes, false);
+
+        assertEquals(1, RegionMigrator.migrate(world, storage));
+        assertNull(storage.read(0, 0));
+        assertArrayEquals(bytes, storage.read(0, 1));
+    }
+}
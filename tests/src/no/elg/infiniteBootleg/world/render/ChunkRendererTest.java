@@ -0,0 +1,63 @@
+package no.elg.infiniteBootleg.world.render;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import no.elg.infiniteBootleg.world.Chunk;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Elg
+ */
+public class ChunkRendererTest {
+
+    private ChunkRenderer chunkRenderer;
+    private Chunk chunk;
+
+    @Before
+    public void setUp() {
+        WorldRender worldRender = mock(WorldRender.class);
+        when(worldRender.getCamera()).thenReturn(new OrthographicCamera());
+        chunkRenderer = new ChunkRenderer(worldRender, mock(SpriteBatch.class));
+
+        chunk = mock(Chunk.class);
+        when(chunk.isLoaded()).thenReturn(true);
+        when(worldRender.isOutOfView(chunk)).thenReturn(false);
+    }
+
+    private void assertRenderedNext(Chunk expected) {
+        chunkRenderer.drainInbox();
+        assertSame(expected, chunkRenderer.nextChunk());
+        assertNull(chunkRenderer.nextChunk());
+        assertEquals(0, chunkRenderer.getQueueSize());
+    }
+
+    @Test
+    public void queueWithoutBodyUpdateIsRendered() {
+        chunkRenderer.queueRendering(chunk, false, false);
+        assertEquals(1, chunkRenderer.getQueueSize());
+        assertRenderedNext(chunk);
+    }
+
+    @Test
+    public void queueWithoutBodyUpdateCanBeQueuedAgain() {
+        chunkRenderer.queueRendering(chunk, false, false);
+        assertRenderedNext(chunk);
+
+        chunkRenderer.queueRendering(chunk, false, false);
+        assertRenderedNext(chunk);
+    }
+
+    @Test
+    public void queueingTwiceRendersOnce() {
+        chunkRenderer.queueRendering(chunk, false, false);
+        chunkRenderer.queueRendering(chunk, false, false);
+        assertRenderedNext(chunk);
+    }
+}